@@ -0,0 +1,300 @@
+package festival;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * <p>
+ * The contract shared by the line-ups of a festival (LineUp and GridLineUp),
+ * which differ only in how they store their events.
+ * </p>
+ *
+ * <p>
+ * This class checks the events being added against the events already
+ * scheduled, and describes any clashes, in one place. Subclasses provide the
+ * storage: finding the event scheduled for a venue in a session, storing a
+ * new event, and the queries over the stored events.
+ * </p>
+ */
+public abstract class AbstractLineUp implements Iterable<Event> {
+
+	// Correct line separator for executing machine (used in toString method)
+	protected static final String LINE_SEPARATOR = System
+			.getProperty("line.separator");
+
+	/**
+	 * Adds a new event to the line-up.
+	 *
+	 * @param event
+	 *            the event to be added to the line-up
+	 * @throws NullPointerException
+	 *             if event is null
+	 * @throws InvalidLineUpException
+	 *             if there is already an event scheduled for the same venue and
+	 *             session as the given event
+	 */
+	public void addEvent(Event event) {
+		if (event == null) {
+			throw new NullPointerException(
+					"Cannot add a null event to a line-up.");
+		}
+		if (eventAt(event.getVenue(), event.getSession()) != null) {
+			throw new InvalidLineUpException(
+					"Line up already includes an event at venue "
+							+ event.getVenue() + " at time "
+							+ event.getSession());
+		}
+		store(event);
+	}
+
+	/**
+	 * Adds all of the given events to the line-up, or none of them.
+	 *
+	 * The events are checked, in a single pass, against the events already
+	 * in the line-up and against each other. If any of them would be
+	 * scheduled for the same venue and session as another event, then the
+	 * line-up is left unchanged and the exception thrown describes every such
+	 * conflict.
+	 *
+	 * @param batch
+	 *            the events to be added to the line-up
+	 * @throws NullPointerException
+	 *             if batch is null or contains null
+	 * @throws InvalidLineUpException
+	 *             if any event in batch is scheduled for the same venue and
+	 *             session as an event already in the line-up, or as another
+	 *             event in batch
+	 */
+	public void addAll(Collection<Event> batch) {
+		if (batch == null) {
+			throw new NullPointerException(
+					"Cannot add a null collection of events to a line-up.");
+		}
+		// the slots occupied by the events of the batch checked so far (in
+		// the order the events appear in the batch)
+		Map<Slot, Event> batchSlots = new LinkedHashMap<>();
+		// each conflict found: an event and the event occupying its slot
+		List<Event[]> conflicts = new ArrayList<>();
+		for (Event event : batch) {
+			if (event == null) {
+				throw new NullPointerException(
+						"Cannot add a null event to a line-up.");
+			}
+			Slot slot = new Slot(event.getVenue(), event.getSession());
+			// an event already occupying the slot of event, if any
+			Event existing = eventAt(event.getVenue(), event.getSession());
+			if (existing == null) {
+				existing = batchSlots.get(slot);
+			}
+			if (existing != null) {
+				conflicts.add(new Event[] { event, existing });
+			} else {
+				batchSlots.put(slot, event);
+			}
+		}
+		if (!conflicts.isEmpty()) {
+			// the message describing all of the conflicts
+			StringBuilder message = new StringBuilder(
+					"Line up cannot include more than one event at the same "
+							+ "venue and session:");
+			for (Event[] conflict : conflicts) {
+				message.append(LINE_SEPARATOR).append("\"")
+						.append(conflict[0]).append("\" clashes with \"")
+						.append(conflict[1]).append("\"");
+			}
+			throw new InvalidLineUpException(message.toString(), conflicts);
+		}
+		for (Event event : batchSlots.values()) {
+			store(event);
+		}
+	}
+
+	/**
+	 * @require venue != null && session > 0
+	 * @ensure Returns the event scheduled for the venue in the session, or
+	 *         null if there is none. The line-up is not modified.
+	 */
+	protected abstract Event eventAt(Venue venue, int session);
+
+	/**
+	 * @require event != null && no event is scheduled for the venue and
+	 *          session of event
+	 * @ensure Adds the event to the line-up.
+	 */
+	protected abstract void store(Event event);
+
+	/**
+	 * If the line-up contains an event that is equivalent to this one, then it
+	 * is removed from the line-up. If there is no equivalent event, then the
+	 * line-up is unchanged by the operation.
+	 *
+	 * @param event
+	 *            the event to be removed from the line-up.
+	 */
+	public abstract void removeEvent(Event event);
+
+	/**
+	 * Returns a list of the events scheduled for the given venue. The list of
+	 * events should be ordered by session number (in ascending order).
+	 *
+	 * @param venue
+	 *            the venue for which the events will be retrieved
+	 * @return a list of the events scheduled for the given venue, ordered by
+	 *         session number
+	 * @throws NullPointerException
+	 *             if the given venue is null
+	 */
+	public abstract List<Event> getEvents(Venue venue);
+
+	/**
+	 * Returns a list of the events scheduled for the given session time (across
+	 * all venues). The list should be ordered by venue name (in ascending
+	 * order).
+	 *
+	 * @param session
+	 *            the session to retrieve the events for
+	 * @return A list of the events scheduled for the given session time.
+	 * @throws InvalidSessionException
+	 *             if session <= 0
+	 */
+	public abstract List<Event> getEvents(int session);
+
+	/**
+	 * Returns a set of all the venues where at least one event from the line-up
+	 * takes place.
+	 *
+	 * @return The venues where events from the line-up will take place.
+	 */
+	public abstract Set<Venue> getVenues();
+
+	/**
+	 * If there is at least one event scheduled, then this method returns the
+	 * number of the first session where there is an event scheduled. Otherwise
+	 * it returns 0.
+	 *
+	 * @return If there is at least one event scheduled, then the first session
+	 *         number that an event is scheduled for, and 0 otherwise.
+	 */
+	public abstract int getFirstUsedSession();
+
+	/**
+	 * If there is at least one event scheduled, then this method returns the
+	 * number of the last session where there is an event scheduled. Otherwise
+	 * it returns 0.
+	 *
+	 * @return If there is at least one event scheduled, then the last session
+	 *         number that an event is scheduled for, and 0 otherwise.
+	 */
+	public abstract int getLastUsedSession();
+
+	/**
+	 * The string representation of a line-up contains a line-separated
+	 * concatenation of the string representations of the events in the line up.
+	 * The events in the line-up should be ordered using their natural ordering
+	 * (i.e. using the compareTo method defined in the Event class).
+	 *
+	 * The line separator string used to separate the events should be retrieved
+	 * in a machine-independent way by calling the function
+	 * System.getProperty("line.separator").
+	 */
+	@Override
+	public String toString() {
+		// the string representation under construction
+		StringBuilder result = new StringBuilder();
+		try {
+			writeTo(result);
+		} catch (IOException e) {
+			// appending to a StringBuilder never throws an IOException
+			throw new IllegalStateException(e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Writes the string representation of the line-up (as described by
+	 * toString) to the given output, one event at a time. The line-up itself
+	 * is not modified.
+	 *
+	 * @param out
+	 *            the output to write the line-up to (e.g. a Writer or a
+	 *            StringBuilder)
+	 * @throws NullPointerException
+	 *             if out is null
+	 * @throws IOException
+	 *             if there is an error writing to out
+	 */
+	public abstract void writeTo(Appendable out) throws IOException;
+
+	/**
+	 * Returns every (venue, session) pair for which two or more different
+	 * events are scheduled.
+	 *
+	 * (A line-up that satisfies its invariant has no clashes, so this is
+	 * mainly useful for diagnosing a line-up that fails checkInvariant.)
+	 *
+	 * @return a map from each venue with a clash (ordered by venue name) to
+	 *         the sessions (in ascending order) in which more than one event
+	 *         is scheduled at that venue
+	 */
+	public Map<Venue, SortedSet<Integer>> getClashes() {
+		return getClashes(false);
+	}
+
+	/**
+	 * Returns every (venue, session) pair for which two or more different
+	 * events are scheduled, as described by getClashes().
+	 *
+	 * @param parallel
+	 *            whether the events should be grouped in parallel
+	 * @return a map from each venue with a clash (ordered by venue name) to
+	 *         the sessions (in ascending order) in which more than one event
+	 *         is scheduled at that venue
+	 */
+	public abstract Map<Venue, SortedSet<Integer>> getClashes(
+			boolean parallel);
+
+	/**
+	 * Determines whether this line-up is internally consistent (i.e. it
+	 * satisfies its class invariant).
+	 *
+	 * @return true if this line-up is internally consistent, and false
+	 *         otherwise.
+	 */
+	public abstract boolean checkInvariant();
+
+	/**
+	 * A (venue, session) pair that at most one event in a line-up may occupy.
+	 */
+	static final class Slot {
+
+		// the venue of the slot
+		final Venue venue;
+		// the session of the slot
+		final int session;
+
+		/**
+		 * @require venue != null
+		 * @ensure Creates a new slot for the given venue and session.
+		 */
+		Slot(Venue venue, int session) {
+			this.venue = venue;
+			this.session = session;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Slot)) {
+				return false;
+			}
+			Slot slot = (Slot) object; // slot to compare
+			return this.session == slot.session
+					&& this.venue.equals(slot.venue);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * venue.hashCode() + session;
+		}
+	}
+
+}
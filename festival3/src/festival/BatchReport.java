@@ -0,0 +1,115 @@
+package festival;
+
+import java.util.BitSet;
+
+/**
+ * <p>
+ * An immutable report of checking a batch of plans for compatibility (as
+ * defined by DayPlanner.compatible) with DayPlanner.compatibleAll.
+ * </p>
+ *
+ * <p>
+ * The report records, for each plan in the order the plans were given,
+ * whether it is compatible, along with the time the batch took to check.
+ * </p>
+ */
+public final class BatchReport {
+
+	// bit i is set if the plan with index i is compatible
+	private final BitSet compatible;
+	// the number of plans that were checked
+	private final int planCount;
+	// the time (in nanoseconds) that the batch took to check
+	private final long elapsed;
+
+	/*
+	 * Invariant: compatible != null && planCount >= 0 && compatible.length()
+	 * <= planCount && elapsed >= 0
+	 */
+
+	/**
+	 * @require compatible != null && planCount >= 0 && compatible.length() <=
+	 *          planCount && elapsed >= 0
+	 * @ensure Creates a report of planCount plans, where the plans with the
+	 *         indexes set in compatible were compatible, that took the given
+	 *         number of nanoseconds to check. (The report does not share
+	 *         compatible.)
+	 */
+	BatchReport(BitSet compatible, int planCount, long elapsed) {
+		this.compatible = (BitSet) compatible.clone();
+		this.planCount = planCount;
+		this.elapsed = elapsed;
+	}
+
+	/**
+	 * Returns the number of plans that were checked.
+	 *
+	 * @return the number of plans in the batch
+	 */
+	public int getPlanCount() {
+		return planCount;
+	}
+
+	/**
+	 * Returns true if the plan with the given index (in the order the plans
+	 * were given) is compatible.
+	 *
+	 * @param index
+	 *            the index of the plan
+	 * @return true iff the plan with the given index is compatible
+	 * @throws IndexOutOfBoundsException
+	 *             if index < 0 or index >= getPlanCount()
+	 */
+	public boolean isCompatible(int index) {
+		if (index < 0 || index >= planCount) {
+			throw new IndexOutOfBoundsException("Plan index " + index
+					+ " must be between 0 and " + (planCount - 1));
+		}
+		return compatible.get(index);
+	}
+
+	/**
+	 * Returns the number of plans that are compatible.
+	 *
+	 * @return the number of compatible plans in the batch
+	 */
+	public int getCompatibleCount() {
+		return compatible.cardinality();
+	}
+
+	/**
+	 * Returns the time that the batch took to check, in nanoseconds.
+	 *
+	 * @return the elapsed time of the batch
+	 */
+	public long getElapsedTime() {
+		return elapsed;
+	}
+
+	/**
+	 * Returns the number of plans checked per second (or 0 if no time was
+	 * measured).
+	 *
+	 * @return the throughput of the batch in plans per second
+	 */
+	public double getThroughput() {
+		return elapsed == 0 ? 0 : planCount * 1e9 / elapsed;
+	}
+
+	/**
+	 * Returns a string of the form:
+	 *
+	 * "COMPATIBLE of PLANS plans compatible in TIME ms (THROUGHPUT plans/s)"
+	 *
+	 * where COMPATIBLE is the number of compatible plans, PLANS the number of
+	 * plans checked, TIME the elapsed time in milliseconds and THROUGHPUT the
+	 * number of plans checked per second.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d of %d plans compatible in %.2f ms"
+				+ " (%.0f plans/s)", getCompatibleCount(), planCount,
+				elapsed / 1e6, getThroughput());
+	}
+
+}
@@ -0,0 +1,234 @@
+package festival;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A bounded cache of the results of DayPlanner.compatible for the plans
+ * checked against a shuttle timetable, so that plans that have been checked
+ * recently are not checked again.
+ * </p>
+ *
+ * <p>
+ * Whether a plan is compatible depends only on the venues and sessions of its
+ * events, so plans are cached by those alone: plans that differ only in the
+ * acts of their events share an entry. When the cache is full, the least
+ * recently used entry is evicted. The cache is tied to the version of the
+ * timetable (see ShuttleTimetable.getVersion): if the timetable has changed
+ * since the last check, the timetable is compiled again and the cache is
+ * cleared before the next check.
+ * </p>
+ *
+ * <p>
+ * The cache may be shared by multiple threads, but the timetable must not be
+ * modified while a check is in progress. The cache's lock is only held to
+ * look up and store results: plans that are not in the cache are checked
+ * outside it, so misses on different threads are checked in parallel.
+ * </p>
+ */
+public class CompatibilityCache {
+
+	// the timetable that plans are checked against
+	private final ShuttleTimetable timetable;
+	// the day-planner for the current version of the timetable
+	private DayPlanner planner;
+	// the largest number of entries in the cache
+	private final int capacity;
+	// the cached results, least recently used first
+	private final LinkedHashMap<PlanKey, Boolean> results;
+	// the number of checks answered from the cache
+	private long hits;
+	// the number of checks that were not in the cache
+	private long misses;
+
+	/*
+	 * Invariant: timetable != null && planner != null && capacity > 0 &&
+	 * results != null && results.size() <= capacity && hits >= 0 && misses >=
+	 * 0 && every entry of results is the result of planner.compatible for its
+	 * plan
+	 */
+
+	/**
+	 * Creates a new empty cache of at most the given number of results of
+	 * checking plans against the given timetable.
+	 *
+	 * @param timetable
+	 *            the timetable to check plans against
+	 * @param capacity
+	 *            the largest number of results to cache
+	 * @throws NullPointerException
+	 *             if timetable is null
+	 * @throws IllegalArgumentException
+	 *             if capacity is not positive
+	 */
+	public CompatibilityCache(ShuttleTimetable timetable, final int capacity) {
+		if (timetable == null) {
+			throw new NullPointerException("The timetable cannot be null");
+		}
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity " + capacity
+					+ " must be positive");
+		}
+		this.timetable = timetable;
+		this.planner = new DayPlanner(timetable);
+		this.capacity = capacity;
+		this.results = new LinkedHashMap<PlanKey, Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<PlanKey, Boolean> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns true if (and only if) the events in the plan are compatible with
+	 * the current version of the timetable, as defined by
+	 * DayPlanner.compatible, using the cached result for the plan if there is
+	 * one.
+	 *
+	 * @param plan
+	 *            the plan to check, with events ordered by session
+	 * @return true iff the plan is compatible
+	 * @throws NullPointerException
+	 *             if plan is null or contains null
+	 */
+	public boolean compatible(List<Event> plan) {
+		PlanKey key = new PlanKey(plan); // the canonical form of the plan
+		DayPlanner current; // the day-planner that checks the plan
+		synchronized (this) {
+			if (isCurrent(planner)) {
+				Boolean result = results.get(key); // the cached result, if any
+				if (result != null) {
+					hits++;
+					return result;
+				}
+			}
+			misses++;
+			current = planner;
+		}
+		// compile the timetable (if it has changed) and check the plan without
+		// holding the lock
+		if (!isCurrent(current)) {
+			current = new DayPlanner(timetable);
+		}
+		boolean result = current.compatible(plan);
+		synchronized (this) {
+			if (!isCurrent(planner) && isCurrent(current)) {
+				// the results for the old version of the timetable are stale
+				planner = current;
+				results.clear();
+			}
+			if (planner == current && isCurrent(current)) {
+				results.put(key, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @require planner != null
+	 * @ensure Returns true if the planner was compiled from the current
+	 *         version of the timetable.
+	 */
+	private boolean isCurrent(DayPlanner planner) {
+		return planner.getTimetable().getVersion() == timetable.getVersion();
+	}
+
+	/**
+	 * Returns the number of checks that were answered from the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of checks that were not answered from the cache.
+	 *
+	 * @return the number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the fraction of checks that were answered from the cache (or 0
+	 * if there have been no checks).
+	 *
+	 * @return the hit rate of the cache
+	 */
+	public synchronized double getHitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	/**
+	 * Returns the number of results in the cache.
+	 *
+	 * @return the size of the cache
+	 */
+	public synchronized int size() {
+		return results.size();
+	}
+
+	/**
+	 * Returns the largest number of results that the cache holds.
+	 *
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Removes every result from the cache, and resets the hit and miss
+	 * counts.
+	 */
+	public synchronized void clear() {
+		results.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * The canonical form of a plan for caching: the venue and session of each
+	 * of its events, in order.
+	 */
+	private static final class PlanKey {
+		// the venue of each event of the plan
+		private final Venue[] venues;
+		// the session of each event of the plan
+		private final int[] sessions;
+		// the hash code of the key
+		private final int hash;
+
+		PlanKey(List<Event> plan) {
+			venues = new Venue[plan.size()];
+			sessions = new int[plan.size()];
+			for (int i = 0; i < venues.length; i++) {
+				venues[i] = plan.get(i).getVenue();
+				sessions[i] = plan.get(i).getSession();
+			}
+			hash = 31 * Arrays.hashCode(venues) + Arrays.hashCode(sessions);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof PlanKey)) {
+				return false;
+			}
+			PlanKey key = (PlanKey) object; // key to compare
+			return hash == key.hash && Arrays.equals(sessions, key.sessions)
+					&& Arrays.equals(venues, key.venues);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
@@ -0,0 +1,347 @@
+package festival;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <p>
+ * An immutable snapshot of a shuttle timetable, compiled into indexes for
+ * answering journey-planning questions quickly.
+ * </p>
+ *
+ * <p>
+ * Each venue that a service departs from or arrives at is given a dense
+ * integer id, the destinations of the services departing each venue after
+ * each session are stored as bitsets of venue ids, and the services are
+ * stored ordered by session. Only the sessions that services depart after
+ * are indexed (found by binary search), so the size of a compiled timetable
+ * does not depend on how large its session numbers are. A compiled timetable is not affected by later
+ * changes to the timetable it was compiled from, and can be shared by any
+ * number of DayPlanners, on any number of threads.
+ * </p>
+ */
+public final class CompiledTimetable implements Iterable<Service> {
+
+	// the id of each venue that a service departs from or arrives at
+	private final Map<Venue, Integer> venueIds;
+	// the venue with each id
+	private final Venue[] venues;
+	// the sessions that services depart at the end of, in ascending order
+	private final int[] sessions;
+	// departures[i][id] holds the ids of the venues that services departing
+	// venue id at the end of session sessions[i] arrive at (or is null if
+	// there are no such services)
+	private final BitSet[][] departures;
+	// the services of the timetable, ordered by session
+	private final Service[] services;
+	// the version of the timetable that was compiled
+	private final long version;
+	// the precomputed reachability closure of the timetable, or null if it
+	// has not been compiled
+	private volatile ReachabilityClosure closure;
+
+	/*
+	 * Invariant: venueIds != null && venues != null && sessions != null &&
+	 * departures != null && services != null && venueIds maps venues[id] to
+	 * id for 0 <= id < venues.length && sessions is strictly increasing and
+	 * holds exactly the sessions of the services in services &&
+	 * departures.length == sessions.length && each departures[i] is non-null
+	 * and has length venues.length && services is ordered by session &&
+	 * departures holds exactly the services in services
+	 */
+
+	/**
+	 * Compiles a snapshot of the given shuttle timetable.
+	 *
+	 * @param timetable
+	 *            the timetable to compile
+	 * @throws NullPointerException
+	 *             if timetable is null
+	 */
+	public CompiledTimetable(ShuttleTimetable timetable) {
+		if (timetable == null) {
+			throw new NullPointerException("The timetable cannot be null");
+		}
+		version = timetable.getVersion();
+		Map<Venue, Integer> ids = new HashMap<>(); // ids given so far
+		List<Venue> byId = new ArrayList<>(); // the venue with each id
+		services = new Service[timetable.size()];
+		int count = 0; // the number of services copied so far
+		for (Service service : timetable) {
+			services[count++] = service;
+			for (Venue venue : Arrays.asList(service.getSource(),
+					service.getDestination())) {
+				if (!ids.containsKey(venue)) {
+					ids.put(venue, byId.size());
+					byId.add(venue);
+				}
+			}
+		}
+		Arrays.sort(services, new SessionComparator());
+		venueIds = Collections.unmodifiableMap(ids);
+		venues = byId.toArray(new Venue[byId.size()]);
+
+		int distinct = 0; // the number of different sessions of services
+		for (int i = 0; i < count; i++) {
+			if (i == 0 || services[i].getSession() != services[i - 1]
+					.getSession()) {
+				distinct++;
+			}
+		}
+		sessions = new int[distinct];
+		departures = new BitSet[distinct][];
+		int index = -1; // the index of the session of the current service
+		for (Service service : services) {
+			if (index < 0 || sessions[index] != service.getSession()) {
+				index++;
+				sessions[index] = service.getSession();
+				departures[index] = new BitSet[venues.length];
+			}
+			// the departures at the end of the session of the service
+			BitSet[] row = departures[index];
+			int source = venueIds.get(service.getSource()); // source id
+			if (row[source] == null) {
+				row[source] = new BitSet(venues.length);
+			}
+			row[source].set(venueIds.get(service.getDestination()));
+		}
+	}
+
+	/**
+	 * Returns the version (as given by ShuttleTimetable.getVersion) of the
+	 * timetable that this snapshot was compiled from, at the time it was
+	 * compiled.
+	 *
+	 * @return the version of the timetable that was compiled
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the number of services in the timetable.
+	 */
+	public int size() {
+		return services.length;
+	}
+
+	/**
+	 * Returns true if the timetable contains a shuttle service equivalent to
+	 * the parameter service, and false otherwise.
+	 *
+	 * @param service
+	 *            the service to be searched for
+	 * @return true iff the timetable contains a shuttle service equivalent to
+	 *         the given parameter.
+	 */
+	public boolean hasService(Service service) {
+		if (service == null) {
+			return false;
+		}
+		BitSet[] row = departures(service.getSession()); // its departures
+		int source = venueId(service.getSource()); // id of the source
+		int destination = venueId(service.getDestination()); // its id
+		return row != null && source >= 0 && destination >= 0
+				&& row[source] != null && row[source].get(destination);
+	}
+
+	/**
+	 * Returns the set of venues that you can get to by catching an available
+	 * shuttle service from the source venue at the end of the given session.
+	 *
+	 * @param source
+	 *            the source venue
+	 * @param session
+	 *            the session number
+	 * @return A set of venues that can be reached by catching a single shuttle
+	 *         service from the source venue at the end of the given session.
+	 *
+	 * @throws NullPointerException
+	 *             if source is null
+	 * @throws InvalidSessionException
+	 *             if the session number is not positive
+	 */
+	public Set<Venue> getDestinations(Venue source, int session) {
+		if (source == null) {
+			throw new NullPointerException("The source venue cannot be null");
+		}
+		if (session <= 0) {
+			throw new InvalidSessionException("Session number " + session
+					+ " must be positive");
+		}
+		Set<Venue> destinations = new HashSet<>(); // venues reachable
+		BitSet[] row = departures(session); // departures after the session
+		int id = venueId(source); // id of the source
+		if (row != null && id >= 0 && row[id] != null) {
+			for (int v = row[id].nextSetBit(0); v >= 0; v =
+					row[id].nextSetBit(v + 1)) {
+				destinations.add(venues[v]);
+			}
+		}
+		return destinations;
+	}
+
+	/**
+	 * Returns an iterator over the services in the timetable, ordered by
+	 * session. The iterator does not support remove.
+	 */
+	@Override
+	public Iterator<Service> iterator() {
+		return Collections.unmodifiableList(Arrays.asList(services))
+				.iterator();
+	}
+
+	/**
+	 * Returns the reachability closure of the timetable, computing it (in
+	 * parallel, on the given pool) if it has not been computed before. The
+	 * closure is computed at most once, and is shared by every DayPlanner
+	 * using this timetable.
+	 *
+	 * @param pool
+	 *            the pool to compute the closure on
+	 * @return the reachability closure of the timetable
+	 * @throws NullPointerException
+	 *             if pool is null
+	 */
+	public ReachabilityClosure compileReachability(ForkJoinPool pool) {
+		if (pool == null) {
+			throw new NullPointerException("The pool cannot be null");
+		}
+		ReachabilityClosure result = closure; // the closure, if computed
+		if (result == null) {
+			synchronized (this) {
+				result = closure;
+				if (result == null) {
+					result = new ReachabilityClosure(this, pool);
+					closure = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the reachability closure of the timetable if it has been
+	 * computed, and null otherwise.
+	 */
+	ReachabilityClosure getClosure() {
+		return closure;
+	}
+
+	/**
+	 * Returns the number of venues that services depart from or arrive at.
+	 */
+	int venueCount() {
+		return venues.length;
+	}
+
+	/**
+	 * @require venue != null
+	 * @ensure Returns the id of the venue, or -1 if no service departs from or
+	 *         arrives at the venue.
+	 */
+	int venueId(Venue venue) {
+		Integer id = venueIds.get(venue); // the id of the venue
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the last session that a service departs after (or 0 if there
+	 * are no services).
+	 */
+	int lastSession() {
+		return sessions.length == 0 ? 0 : sessions[sessions.length - 1];
+	}
+
+	/**
+	 * @require session > 0
+	 * @ensure Returns an array (that must not be modified) holding, for each
+	 *         venue id, the ids of the venues that services departing that
+	 *         venue at the end of the session arrive at (or null if there are
+	 *         no such services); or null if no services depart at the end of
+	 *         the session.
+	 */
+	BitSet[] departures(int session) {
+		int index = Arrays.binarySearch(sessions, session); // its index
+		return index >= 0 ? departures[index] : null;
+	}
+
+	/**
+	 * Returns the number of different sessions that services depart at the
+	 * end of.
+	 */
+	int departureCount() {
+		return sessions.length;
+	}
+
+	/**
+	 * @require session > 0
+	 * @ensure Returns the index of the first session (in ascending order) that
+	 *         services depart at the end of that is the given session or
+	 *         later (or departureCount() if there is no such session).
+	 */
+	int firstDeparture(int session) {
+		int index = Arrays.binarySearch(sessions, session); // its index
+		return index >= 0 ? index : -index - 1;
+	}
+
+	/**
+	 * @require 0 <= index < departureCount()
+	 * @ensure Returns the session (in ascending order) with the given index
+	 *         that services depart at the end of.
+	 */
+	int departureSession(int index) {
+		return sessions[index];
+	}
+
+	/**
+	 * @require 0 <= index < departureCount()
+	 * @ensure Returns an array (that must not be modified) holding, for each
+	 *         venue id, the ids of the venues that services departing that
+	 *         venue at the end of the session with the given index (as given
+	 *         by departureSession) arrive at (or null if there are no such
+	 *         services).
+	 */
+	BitSet[] departuresAt(int index) {
+		return departures[index];
+	}
+
+	/**
+	 * Returns the services of the timetable, ordered by session, in an array
+	 * that must not be modified.
+	 */
+	Service[] services() {
+		return services;
+	}
+
+	/**
+	 * @require session > 0
+	 * @ensure Returns the index in services() of the first service that
+	 *         departs after the given session or later (or services().length
+	 *         if there is no such service).
+	 */
+	int firstService(int session) {
+		int low = 0; // services before low depart before the session
+		int high = services.length; // services from high depart no earlier
+		while (low < high) {
+			int middle = (low + high) >>> 1; // the service to compare
+			if (services[middle].getSession() < session) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Orders services by the session they depart at the end of.
+	 */
+	private static class SessionComparator implements Comparator<Service> {
+		@Override
+		public int compare(Service s1, Service s2) {
+			return Integer.compare(s1.getSession(), s2.getSession());
+		}
+	}
+
+}
@@ -0,0 +1,232 @@
+package festival;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A mutable class representing a festival-goer's plan for the day: a set of
+ * events, at most one per session, that is kept compatible (as defined by
+ * DayPlanner.compatible) with a shuttle timetable as events are added to and
+ * removed from it. The reachability questions about the timetable are asked
+ * of a Reachability, such as a DayPlanner or a ReachabilityCache in front of
+ * one.
+ * </p>
+ *
+ * <p>
+ * The events are kept ordered by session, so adding an event only needs to
+ * check that the event can be reached from the event before it, and that the
+ * event after it can be reached from it: two reachability queries, rather
+ * than a check of the whole plan. Removing an event needs no queries at all,
+ * since if the events either side of it could reach it, then the earlier one
+ * can still reach the later one.
+ * </p>
+ */
+public class DayPlan implements Iterable<Event> {
+
+	// answers the reachability questions about the timetable that the plan
+	// is kept compatible with
+	private Reachability reachability;
+	// the events in the plan, indexed by session
+	private NavigableMap<Integer, Event> events;
+
+	/*
+	 * Invariant: reachability != null && events != null && !events.containsKey(null)
+	 * && !events.containsValue(null) && events maps the session of each event
+	 * in the plan to the event
+	 */
+
+	/**
+	 * Creates a new empty plan that is kept compatible with the timetable that
+	 * the given reachability questions are answered for.
+	 *
+	 * @param reachability
+	 *            answers the reachability questions used to check the plan
+	 * @throws NullPointerException
+	 *             if reachability is null
+	 */
+	public DayPlan(Reachability reachability) {
+		if (reachability == null) {
+			throw new NullPointerException("The reachability cannot be null");
+		}
+		this.reachability = reachability;
+		events = new TreeMap<>();
+	}
+
+	/**
+	 * Returns what the plan's reachability questions are asked of.
+	 *
+	 * @return the reachability of the plan
+	 */
+	public Reachability getReachability() {
+		return reachability;
+	}
+
+	/**
+	 * Changes what the plan's reachability questions are asked of (for
+	 * example, after a new timetable has been loaded), and returns true if
+	 * the events already in the plan are compatible with its timetable. The
+	 * events in the plan are kept either way, but adding events to a plan that
+	 * is not compatible will not make it compatible.
+	 *
+	 * @param reachability
+	 *            answers the reachability questions used to check the plan
+	 * @return true if the plan is compatible with the new timetable
+	 * @throws NullPointerException
+	 *             if reachability is null
+	 */
+	public boolean setReachability(Reachability reachability) {
+		if (reachability == null) {
+			throw new NullPointerException("The reachability cannot be null");
+		}
+		this.reachability = reachability;
+		return isCompatible();
+	}
+
+	/**
+	 * Adds the given event to the plan if the plan stays compatible: that is,
+	 * if no event in the plan is scheduled for the same session, the event can
+	 * be reached from the event before it in the plan (if any), and the event
+	 * after it in the plan (if any) can be reached from it. Otherwise the plan
+	 * is not changed.
+	 *
+	 * @param event
+	 *            the event to add
+	 * @return true if the event was added to the plan
+	 * @throws NullPointerException
+	 *             if event is null
+	 */
+	public boolean add(Event event) {
+		if (event == null) {
+			throw new NullPointerException("The event cannot be null");
+		}
+		if (events.containsKey(event.getSession())) {
+			return false;
+		}
+		Event previous = previous(event.getSession()); // event before it
+		Event next = next(event.getSession()); // event after it
+		if ((previous != null && !reachability.canReach(previous, event))
+				|| (next != null && !reachability.canReach(event, next))) {
+			return false;
+		}
+		events.put(event.getSession(), event);
+		return true;
+	}
+
+	/**
+	 * Removes the given event from the plan, if it is in the plan. (The plan
+	 * stays compatible.)
+	 *
+	 * @param event
+	 *            the event to remove
+	 * @return true if the event was in the plan
+	 */
+	public boolean remove(Event event) {
+		if (!contains(event)) {
+			return false;
+		}
+		events.remove(event.getSession());
+		return true;
+	}
+
+	/**
+	 * Returns true if the given event is in the plan.
+	 *
+	 * @param event
+	 *            the event to look for
+	 * @return true iff the plan contains the event
+	 */
+	public boolean contains(Event event) {
+		return event != null && event.equals(events.get(event.getSession()));
+	}
+
+	/**
+	 * Returns the last event in the plan that is scheduled before the given
+	 * session, or null if there is none.
+	 *
+	 * @param session
+	 *            the session to look before
+	 * @return the last event in the plan before the session
+	 */
+	public Event previous(int session) {
+		Map.Entry<Integer, Event> entry = events.lowerEntry(session);
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Returns the first event in the plan that is scheduled after the given
+	 * session, or null if there is none.
+	 *
+	 * @param session
+	 *            the session to look after
+	 * @return the first event in the plan after the session
+	 */
+	public Event next(int session) {
+		Map.Entry<Integer, Event> entry = events.higherEntry(session);
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Returns the number of events in the plan.
+	 *
+	 * @return the size of the plan
+	 */
+	public int size() {
+		return events.size();
+	}
+
+	/**
+	 * Returns a list of the events in the plan, ordered by session.
+	 *
+	 * @return the events in the plan
+	 */
+	public List<Event> getEvents() {
+		return new ArrayList<>(events.values());
+	}
+
+	/**
+	 * Returns true if the events in the plan are compatible with the
+	 * timetable (checking the whole plan: each event must be able to reach the
+	 * event after it).
+	 *
+	 * @return true if the plan is compatible
+	 */
+	public boolean isCompatible() {
+		Event previous = null; // the event before the one being checked
+		for (Event event : events.values()) {
+			if (previous != null && !reachability.canReach(previous, event)) {
+				return false;
+			}
+			previous = event;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns an iterator over the events in the plan, ordered by session.
+	 * The iterator does not support remove.
+	 */
+	@Override
+	public Iterator<Event> iterator() {
+		return Collections.unmodifiableCollection(events.values()).iterator();
+	}
+
+	/**
+	 * Determines whether this DayPlan is internally consistent (i.e. it
+	 * satisfies its class invariant).
+	 *
+	 * @return true if this DayPlan is internally consistent, and false
+	 *         otherwise.
+	 */
+	public boolean checkInvariant() {
+		if (reachability == null || events == null) {
+			return false;
+		}
+		for (Map.Entry<Integer, Event> entry : events.entrySet()) {
+			if (entry.getKey() == null || entry.getValue() == null
+					|| entry.getKey() != entry.getValue().getSession()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -1,15 +1,22 @@
 package festival;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A class with functionality for helping a festival-goer to plan their day at a
  * festival.
  */
-public class DayPlanner {
+public class DayPlanner implements Reachability {
 
-	// the timetable of the festival
-	private ShuttleTimetable timetable;
+	// the compiled timetable of the festival
+	private final CompiledTimetable timetable;
+
+	/*
+	 * Invariant: timetable != null
+	 */
 
 	/**
 	 * @require timetable!=null
@@ -19,10 +26,24 @@ public class DayPlanner {
 	 *         day-planner.)
 	 */
 	public DayPlanner(ShuttleTimetable timetable) {
-		this.timetable = new ShuttleTimetable();
-		for (Service service : timetable) {
-			this.timetable.addService(service);
-		}
+		this(new CompiledTimetable(timetable));
+	}
+
+	/**
+	 * @require timetable!=null
+	 * @ensure Creates a new day planner for a festival with the given compiled
+	 *         timetable. The timetable is immutable, so it is shared rather
+	 *         than copied, and any number of day planners may share it.
+	 */
+	public DayPlanner(CompiledTimetable timetable) {
+		this.timetable = timetable;
+	}
+
+	/**
+	 * @ensure Returns the compiled timetable of the day-planner.
+	 */
+	public CompiledTimetable getTimetable() {
+		return timetable;
 	}
 
 	/**
@@ -54,6 +75,42 @@ public class DayPlanner {
 		return true;
 	}
 
+	/**
+	 * @require plans != null && every plan satisfies the precondition of
+	 *          compatible
+	 * @ensure Checks each of the given plans with compatible, in parallel on
+	 *         the common ForkJoinPool, and returns a report of the results.
+	 */
+	public BatchReport compatibleAll(Stream<List<Event>> plans) {
+		return compatibleAll(plans, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @require plans != null && pool != null && every plan satisfies the
+	 *          precondition of compatible
+	 * @ensure Checks each of the given plans with compatible, in parallel on
+	 *         the given pool, and returns a report of the results (in the
+	 *         order of the stream) and of the time taken. The plans are all
+	 *         checked against the day-planner's compiled timetable (and its
+	 *         reachability closure, if it has been compiled), which is
+	 *         immutable and so shared by the threads of the pool without
+	 *         locking.
+	 */
+	public BatchReport compatibleAll(final Stream<List<Event>> plans,
+			ForkJoinPool pool) {
+		long start = System.nanoTime();
+		// whether each plan is compatible, in the order of the stream
+		List<Boolean> results = pool.submit(
+				() -> plans.parallel().map(plan -> compatible(plan))
+						.collect(Collectors.toList())).join();
+		long elapsed = System.nanoTime() - start;
+		BitSet compatible = new BitSet(results.size()); // compatible plans
+		for (int i = 0; i < results.size(); i++) {
+			compatible.set(i, results.get(i));
+		}
+		return new BatchReport(compatible, results.size(), elapsed);
+	}
+
 	/**
 	 * @require source != null && destination != null
 	 * @ensure Returns true if it is possible to be at the source's venue for
@@ -61,11 +118,489 @@ public class DayPlanner {
 	 *         available shuttle services (if necessary) to get there, be at the
 	 *         destination's venue in time for the given destination's session.
 	 **/
+	@Override
 	public boolean canReach(Event source, Event destination) {
+		// the compiled closure of the timetable, if there is one
+		ReachabilityClosure compiled = timetable.getClosure();
+		if (compiled != null) {
+			return compiled.canReach(source.getVenue(), source.getSession(),
+					destination.getVenue(), destination.getSession());
+		}
 		return canReach(source.getVenue(), source.getSession(),
 				destination.getVenue(), destination.getSession());
 	}
 
+	/**
+	 * @require lineUp != null
+	 * @ensure Returns a plan (ordered by session) of as many events from the
+	 *         line-up as possible that is compatible with the day-planner's
+	 *         timetable (as defined by compatible). The line-up is not
+	 *         modified.
+	 */
+	public List<Event> largestPlan(AbstractLineUp lineUp) {
+		return bestPlan(lineUp, null, new ArrayList<Event>());
+	}
+
+	/**
+	 * @require lineUp != null && ratings != null && !ratings.containsValue(null)
+	 * @ensure Returns a plan (ordered by session) of events from the line-up,
+	 *         with the largest total rating of any plan that is compatible
+	 *         with the day-planner's timetable (as defined by compatible). The
+	 *         rating of an event is the rating of its act in ratings (or 0 if
+	 *         its act is not rated), and events that are not rated above 0 are
+	 *         left out of the plan. The line-up is not modified.
+	 */
+	public List<Event> bestPlan(AbstractLineUp lineUp,
+			Map<String, Double> ratings) {
+		return bestPlan(lineUp, ratings, new ArrayList<Event>());
+	}
+
+	/**
+	 * @require lineUp != null && !ratings.containsValue(null) && required !=
+	 *          null && !required.contains(null)
+	 * @ensure Returns a plan (ordered by session) of events from the line-up
+	 *         that includes every required event, with the largest total
+	 *         rating of any such plan that is compatible with the day-planner's
+	 *         timetable (as defined by compatible); or null if there is no
+	 *         such plan (or a required event is not in the line-up). The
+	 *         rating of an event is the rating of its act in ratings (or 0 if
+	 *         its act is not rated, or 1 if ratings is null), and events that
+	 *         are neither required nor rated above 0 are left out of the plan.
+	 *         The line-up is not modified.
+	 *
+	 *         The plan is found by dynamic programming over (venue, session)
+	 *         states, latest session first: the best total rating from being
+	 *         at venue v during session t is the rating of the event (if any)
+	 *         at v during t, plus the best from a venue that it is possible to
+	 *         be at, from v, during the next session of the line-up. States
+	 *         that would miss a required event are ruled out. Only the
+	 *         sessions of the line-up that have events are visited (and the
+	 *         services departing between them), so this takes time linear in
+	 *         the number of those sessions, venues and services (and no
+	 *         subsets of events are enumerated).
+	 */
+	public List<Event> bestPlan(AbstractLineUp lineUp,
+			Map<String, Double> ratings, Collection<Event> required) {
+		PlanTable table = planTable(lineUp, ratings, required); // the DP
+		if (table == null) {
+			return null;
+		}
+		List<Event> plan = new ArrayList<>(); // the plan under construction
+		if (table.events.length == 0) {
+			return plan;
+		}
+		// follow the best choices forward from the best starting venue
+		int v = 0; // the venue at the current session
+		for (int w = 1; w < table.venueCount; w++) {
+			if (table.best[0][w] > table.best[0][v]) {
+				v = w;
+			}
+		}
+		if (table.best[0][v] == Double.NEGATIVE_INFINITY) {
+			return null;
+		}
+		for (int i = 0; i < table.events.length; i++) {
+			if (table.attend[i][v]) {
+				plan.add(table.events[i][v]);
+			}
+			if (i + 1 < table.events.length) {
+				v = next(table.best[i + 1], v, table.sessions[i],
+						table.sessions[i + 1]);
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * @require lineUp != null && !ratings.containsValue(null) && k >= 0
+	 * @ensure Returns up to k distinct non-empty plans (each ordered by
+	 *         session) of events from the line-up that are compatible with the
+	 *         day-planner's timetable, in decreasing order of total rating:
+	 *         no compatible plan left out has a larger total rating than one
+	 *         returned. Ratings are as for bestPlan (1 for every event if
+	 *         ratings is null), and events that are not rated above 0 are
+	 *         left out of the plans. The line-up is not modified.
+	 *
+	 *         The plans are found by a best-first search over partial plans,
+	 *         session by session, guided by the exact best completion of each
+	 *         partial plan (from the tables of bestPlan), so the search only
+	 *         follows partial plans that lead to one of the k plans returned.
+	 *         The alternatives of each partial plan are ordered once and
+	 *         generated one at a time, as the next best is needed.
+	 */
+	public List<List<Event>> topPlans(AbstractLineUp lineUp,
+			Map<String, Double> ratings, int k) {
+		List<List<Event>> plans = new ArrayList<>(); // the plans found
+		PlanTable table = planTable(lineUp, ratings, new ArrayList<Event>());
+		if (table.events.length == 0 || k <= 0) {
+			return plans;
+		}
+		// the unexplored alternatives, best first: each is the index of an
+		// alternative of a partial plan
+		PriorityQueue<PlanChoice> queue = new PriorityQueue<>();
+		BitSet anywhere = new BitSet(table.venueCount); // every venue
+		anywhere.set(0, table.venueCount);
+		PlanNode start = new PlanNode(null, null, 0, anywhere, 0);
+		start.expand(table);
+		if (start.choices.length > 0) {
+			queue.add(new PlanChoice(start, 0));
+		}
+		while (!queue.isEmpty() && plans.size() < k) {
+			PlanChoice choice = queue.poll(); // the best alternative left
+			if (choice.index + 1 < choice.node.choices.length) {
+				queue.add(new PlanChoice(choice.node, choice.index + 1));
+			}
+			PlanNode node = choice.node.follow(choice.index, table);
+			if (node.row < table.events.length) {
+				node.expand(table);
+				if (node.choices.length > 0) {
+					queue.add(new PlanChoice(node, 0));
+				}
+			} else {
+				List<Event> plan = node.plan(); // the plan that was completed
+				if (!plan.isEmpty()) {
+					plans.add(plan);
+				}
+			}
+		}
+		return plans;
+	}
+
+	/**
+	 * @require lineUp != null && !ratings.containsValue(null) && required !=
+	 *          null && !required.contains(null)
+	 * @ensure Returns the dynamic programming tables used to find the best
+	 *         plans of events from the line-up (as described by bestPlan) that
+	 *         include every required event, or null if a required event is not
+	 *         in the line-up or two are in the same session.
+	 */
+	private PlanTable planTable(AbstractLineUp lineUp,
+			Map<String, Double> ratings, Collection<Event> required) {
+		PlanTable table = new PlanTable();
+		// the sessions of the line-up that have events, in ascending order
+		SortedSet<Integer> used = new TreeSet<>();
+		for (Event event : lineUp) {
+			used.add(event.getSession());
+		}
+		int[] sessions = new int[used.size()];
+		int count = 0; // the number of sessions copied so far
+		for (int session : used) {
+			sessions[count++] = session;
+		}
+		table.sessions = sessions;
+		// the ids of the venues of the line-up that no service departs from
+		// or arrives at, after those of the timetable
+		Map<Venue, Integer> others = new HashMap<>();
+		for (Venue venue : lineUp.getVenues()) {
+			if (timetable.venueId(venue) < 0) {
+				others.put(venue, timetable.venueCount() + others.size());
+			}
+		}
+		int venueCount = timetable.venueCount() + others.size();
+		table.venueCount = venueCount;
+		// events[i][v] is the event at venue v during session sessions[i]
+		Event[][] events = new Event[sessions.length][venueCount];
+		for (int i = 0; i < sessions.length; i++) {
+			for (Event event : lineUp.getEvents(sessions[i])) {
+				int id = timetable.venueId(event.getVenue()); // its venue
+				events[i][id >= 0 ? id : others.get(event.getVenue())] = event;
+			}
+		}
+		table.events = events;
+		// value[i][v] is the rating of the event at venue v during session
+		// sessions[i], and attend[i][v] whether it may be in the plan
+		double[][] value = new double[sessions.length][venueCount];
+		boolean[][] attend = new boolean[sessions.length][venueCount];
+		for (int t = 0; t < events.length; t++) {
+			for (int v = 0; v < venueCount; v++) {
+				if (events[t][v] != null) {
+					Double rating = ratings == null ? Double.valueOf(1)
+							: ratings.get(events[t][v].getAct()); // its rating
+					value[t][v] = rating == null ? 0 : rating;
+					attend[t][v] = value[t][v] > 0;
+				}
+			}
+		}
+		table.value = value;
+		table.attend = attend;
+		// forced[i] is the venue of the required event of session sessions[i]
+		// (or -1 if there is none)
+		int[] forced = new int[sessions.length];
+		Arrays.fill(forced, -1);
+		for (Event event : required) {
+			// the index of its session in events
+			int t = Arrays.binarySearch(sessions, event.getSession());
+			Integer id = others.get(event.getVenue()); // id of its venue
+			if (timetable.venueId(event.getVenue()) >= 0) {
+				id = timetable.venueId(event.getVenue());
+			}
+			if (t < 0 || t >= events.length || id == null
+					|| !event.equals(events[t][id])
+					|| (forced[t] >= 0 && forced[t] != id)) {
+				return null;
+			}
+			forced[t] = id;
+			attend[t][id] = true;
+		}
+		table.forced = forced;
+
+		// best[i][v] is the best total rating that can be attended from
+		// being at venue v during session sessions[i] (0 after the last
+		// session, and negative infinity if a required event would be
+		// missed), and after[i][v] the best that can be attended after it
+		double[][] best = new double[sessions.length + 1][venueCount];
+		double[][] after = new double[sessions.length][venueCount];
+		for (int i = sessions.length - 1; i >= 0; i--) {
+			if (i + 1 < sessions.length) {
+				after[i] = bestAfter(best[i + 1], sessions[i],
+						sessions[i + 1]);
+			}
+			for (int v = 0; v < venueCount; v++) {
+				if (forced[i] >= 0 && forced[i] != v) {
+					best[i][v] = Double.NEGATIVE_INFINITY;
+				} else {
+					best[i][v] = (attend[i][v] ? value[i][v] : 0)
+							+ after[i][v];
+				}
+			}
+		}
+		table.best = best;
+		table.after = after;
+		return table;
+	}
+
+	/**
+	 * @require next != null && 0 <= v < next.length && 0 < from < to
+	 * @ensure Returns the venue, out of the venues that it is possible to be
+	 *         at during session to from being at venue v during session from,
+	 *         with the largest value in next (preferring v when there is a
+	 *         tie).
+	 */
+	private int next(double[] next, int v, int from, int to) {
+		int best = v; // the best venue found so far
+		BitSet at = new BitSet(next.length); // the venue v
+		at.set(v);
+		BitSet reachable = advance(at, from, to); // the venues to choose from
+		for (int w = reachable.nextSetBit(0); w >= 0; w =
+				reachable.nextSetBit(w + 1)) {
+			if (next[w] > next[best]) {
+				best = w;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @require next != null && 0 < from < to
+	 * @ensure Returns, for each venue v (of the venues of next), the largest
+	 *         value in next of a venue that it is possible to be at during
+	 *         session to from being at v during session from. Only the
+	 *         services departing between the sessions are visited.
+	 */
+	private double[] bestAfter(double[] next, int from, int to) {
+		double[] result = next.clone(); // the best from each venue so far
+		// the departures are visited latest first, so that before each one
+		// result holds the best from each venue after its session
+		for (int i = timetable.firstDeparture(to) - 1; i >= 0
+				&& timetable.departureSession(i) >= from; i--) {
+			BitSet[] row = timetable.departuresAt(i); // departures after it
+			double[] later = result.clone(); // the best after its session
+			for (int v = 0; v < timetable.venueCount(); v++) {
+				if (row[v] != null) {
+					for (int w = row[v].nextSetBit(0); w >= 0; w =
+							row[v].nextSetBit(w + 1)) {
+						result[v] = Math.max(result[v], later[w]);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @require source != null && destination != null && session > 0
+	 * @ensure Returns an itinerary that starts at the source venue during the
+	 *         given session and arrives at the destination venue in time for
+	 *         the earliest possible session, using the available shuttle
+	 *         services; or null if the destination cannot be reached from
+	 *         the source at all. (If the venues are equal, the itinerary has
+	 *         no legs.)
+	 */
+	public Itinerary earliestArrival(Venue source, int session,
+			Venue destination) {
+		if (source.equals(destination)) {
+			return new Itinerary(source, session, new ArrayList<Service>());
+		}
+		int from = timetable.venueId(source); // id of the source
+		int to = timetable.venueId(destination); // id of the destination
+		if (from < 0 || to < 0) {
+			return null;
+		}
+		// arrival[v] is the earliest session venue v can be reached by so far
+		int[] arrival = new int[timetable.venueCount()];
+		Arrays.fill(arrival, Integer.MAX_VALUE);
+		arrival[from] = session;
+		// leg[v] is the service that reaches venue v by arrival[v]
+		Service[] leg = new Service[timetable.venueCount()];
+
+		// a single scan over the services, in order of session, from the
+		// first one that departs after the starting session
+		Service[] services = timetable.services(); // ordered by session
+		for (int i = timetable.firstService(session); i < services.length
+				&& services[i].getSession() + 1 < arrival[to]; i++) {
+			Service service = services[i]; // the service to consider
+			int s = timetable.venueId(service.getSource()); // its source
+			int d = timetable.venueId(service.getDestination()); // its dest
+			if (arrival[s] <= service.getSession()
+					&& service.getSession() + 1 < arrival[d]) {
+				arrival[d] = service.getSession() + 1;
+				leg[d] = service;
+			}
+		}
+		if (leg[to] == null) {
+			return null;
+		}
+
+		// follow the legs back from the destination to the source
+		LinkedList<Service> legs = new LinkedList<>(); // legs found so far
+		for (int v = to; v != from; v =
+				timetable.venueId(leg[v].getSource())) {
+			legs.addFirst(leg[v]);
+		}
+		return new Itinerary(source, session, legs);
+	}
+
+	/**
+	 * @require source != null && destination != null && session > 0
+	 * @ensure Returns the itineraries from the source venue during the given
+	 *         session to the destination venue that are not beaten on both
+	 *         arrival session and number of services by another itinerary:
+	 *         for each number of services (in increasing order) that arrives
+	 *         earlier than any itinerary with fewer services, one itinerary
+	 *         with that many services that arrives as early as possible. The
+	 *         list is empty if the destination cannot be reached from the
+	 *         source. (If the venues are equal, the only itinerary has no
+	 *         legs.)
+	 */
+	public List<Itinerary> fewestTransfers(Venue source, int session,
+			Venue destination) {
+		List<Itinerary> itineraries = new ArrayList<>(); // the options found
+		if (source.equals(destination)) {
+			itineraries.add(new Itinerary(source, session,
+					new ArrayList<Service>()));
+			return itineraries;
+		}
+		int from = timetable.venueId(source); // id of the source
+		int to = timetable.venueId(destination); // id of the destination
+		if (from < 0 || to < 0) {
+			return itineraries;
+		}
+		// arrival[v] is the earliest session venue v can be reached by using
+		// at most the number of services of the current round
+		int[] arrival = new int[timetable.venueCount()];
+		Arrays.fill(arrival, Integer.MAX_VALUE);
+		arrival[from] = session;
+		// legs.get(k)[v] is the last service of a journey of at most k
+		// services that reaches venue v as early as possible
+		List<Service[]> legs = new ArrayList<>();
+		legs.add(new Service[timetable.venueCount()]);
+
+		Service[] services = timetable.services(); // ordered by session
+		int first = timetable.firstService(session); // first useful service
+		boolean improved = true; // whether the last round reached a venue
+		for (int k = 1; improved; k++) {
+			// each round catches one more service than the last one, from
+			// the venues (and by the sessions) reached in the last round
+			int[] previous = arrival; // arrivals of the last round
+			arrival = previous.clone();
+			Service[] leg = legs.get(k - 1).clone(); // legs of this round
+			improved = false;
+			for (int i = first; i < services.length
+					&& services[i].getSession() + 1 < arrival[to]; i++) {
+				Service service = services[i]; // the service to consider
+				int s = timetable.venueId(service.getSource()); // its source
+				int d = timetable.venueId(service.getDestination()); // dest
+				if (previous[s] <= service.getSession()
+						&& service.getSession() + 1 < arrival[d]) {
+					arrival[d] = service.getSession() + 1;
+					leg[d] = service;
+					improved = true;
+				}
+			}
+			legs.add(leg);
+			if (arrival[to] < previous[to]) {
+				itineraries.add(new Itinerary(source, session,
+						legsTo(legs, k, from, to)));
+			}
+		}
+		return itineraries;
+	}
+
+	/**
+	 * @ensure Precomputes the reachability closure of the day-planner's
+	 *         timetable (in parallel, on the common ForkJoinPool) and returns
+	 *         it. Afterwards canReach is answered from the closure by a single
+	 *         comparison (by every day-planner that shares the timetable).
+	 */
+	public ReachabilityClosure compileReachability() {
+		return compileReachability(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @require pool != null
+	 * @ensure Precomputes the reachability closure of the day-planner's
+	 *         timetable (in parallel, on the given pool) and returns it.
+	 *         Afterwards canReach is answered from the closure by a single
+	 *         comparison (by every day-planner that shares the timetable).
+	 */
+	public ReachabilityClosure compileReachability(ForkJoinPool pool) {
+		return timetable.compileReachability(pool);
+	}
+
+	/**
+	 * @require venues != null && 0 < from <= to
+	 * @ensure Returns the venues that it is possible to be at during session
+	 *         to, from being at one of the given venues during session from.
+	 *         Only the services departing between the sessions are visited.
+	 */
+	private BitSet advance(BitSet venues, int from, int to) {
+		BitSet result = (BitSet) venues.clone(); // the venues reachable
+		// the venues arrived at by the services departing after a session
+		BitSet arrivals = new BitSet(timetable.venueCount());
+		for (int i = timetable.firstDeparture(from); i < timetable
+				.departureCount()
+				&& timetable.departureSession(i) < to; i++) {
+			BitSet[] row = timetable.departuresAt(i); // departures after it
+			arrivals.clear();
+			for (int u = result.nextSetBit(0); u >= 0
+					&& u < timetable.venueCount(); u =
+					result.nextSetBit(u + 1)) {
+				if (row[u] != null) {
+					arrivals.or(row[u]);
+				}
+			}
+			result.or(arrivals);
+		}
+		return result;
+	}
+
+	/**
+	 * @require legs.get(k)[to] != null && the legs of each round follow on
+	 *          from those of the round before, back to the venue from
+	 * @ensure Returns the services of the journey (of at most k services)
+	 *         found for venue to, in the order they are caught.
+	 */
+	private List<Service> legsTo(List<Service[]> legs, int k, int from,
+			int to) {
+		LinkedList<Service> result = new LinkedList<>(); // legs found so far
+		for (int v = to; v != from; k--) {
+			Service leg = legs.get(k)[v]; // the last leg to v
+			result.addFirst(leg);
+			v = timetable.venueId(leg.getSource());
+		}
+		return result;
+	}
+
 	/**
 	 * @require sourceVenue != null && destinationVenue != null &&
 	 *          sourceSession>0 && destinationSession >0
@@ -91,15 +626,196 @@ public class DayPlanner {
 			return true;
 		}
 		// services would be required to reach the destination
-		for (int t = sourceSession; t < destinationSession; t++) {
-			Set<Venue> adjacent = timetable.getDestinations(sourceVenue, t);
-			for (Venue v : adjacent) {
-				if (canReach(v, t + 1, destinationVenue, destinationSession)) {
-					return true;
+		int source = timetable.venueId(sourceVenue); // id of the source
+		int destination = timetable.venueId(destinationVenue); // its id
+		if (source < 0 || destination < 0) {
+			return false;
+		}
+		// the venues that can be reached by the start of session t + 1
+		BitSet reachable = new BitSet(timetable.venueCount());
+		reachable.set(source);
+		// the venues arrived at by services departing at the end of session t
+		BitSet arrivals = new BitSet(timetable.venueCount());
+		// only the sessions that services depart after, from the source
+		// session up to the one before the destination session, are visited
+		for (int i = timetable.firstDeparture(sourceSession); i < timetable
+				.departureCount()
+				&& timetable.departureSession(i) < destinationSession; i++) {
+			// departures after the session with index i
+			BitSet[] row = timetable.departuresAt(i);
+			arrivals.clear();
+			for (int v = reachable.nextSetBit(0); v >= 0; v =
+					reachable.nextSetBit(v + 1)) {
+				if (row[v] != null) {
+					arrivals.or(row[v]);
 				}
 			}
+			reachable.or(arrivals);
+			if (reachable.get(destination)) {
+				return true;
+			}
 		}
 		return false;
 	}
 
+	/**
+	 * The dynamic programming tables used to find the best plans of events
+	 * from a line-up, for the sessions of the line-up that have events.
+	 */
+	private static class PlanTable {
+		// the sessions of the line-up that have events, in ascending order
+		int[] sessions;
+		// the number of venues (of the timetable and then the line-up)
+		int venueCount;
+		// events[i][v] is the event at venue v during session sessions[i]
+		Event[][] events;
+		// value[i][v] is the rating of that event
+		double[][] value;
+		// attend[i][v] is true if that event may be in a plan
+		boolean[][] attend;
+		// forced[i] is the venue of the required event of session sessions[i]
+		// (or -1 if there is none)
+		int[] forced;
+		// best[i][v] is the best total rating that can be attended from being
+		// at venue v during session sessions[i]
+		double[][] best;
+		// after[i][v] is the best total rating that can be attended after
+		// being at venue v during session sessions[i]
+		double[][] after;
+	}
+
+	/**
+	 * A partial plan explored by topPlans: the events chosen for the sessions
+	 * (of the line-up) before the session with index row, the venues that it
+	 * is possible to be at during that session given those choices, and (once
+	 * expanded) the choices for that session, best first.
+	 */
+	private class PlanNode {
+		// the partial plan this one extends (or null for the empty plan)
+		PlanNode parent;
+		// the event chosen for the session before row (or null if none)
+		Event event;
+		// the index (in the table's sessions) of the session to choose an
+		// event for next
+		int row;
+		// the venues that it is possible to be at during that session
+		BitSet frontier;
+		// the total rating of the events chosen so far
+		double score;
+		// the venue of each choice for that session (or -1 to skip the
+		// session), best first
+		int[] choices;
+		// the best total rating of a plan that extends each choice
+		double[] values;
+
+		PlanNode(PlanNode parent, Event event, int row, BitSet frontier,
+				double score) {
+			this.parent = parent;
+			this.event = event;
+			this.row = row;
+			this.frontier = frontier;
+			this.score = score;
+		}
+
+		/**
+		 * @require table != null && 0 <= row < table.events.length
+		 * @ensure Works out the choices for the session with index row that
+		 *         can lead to a plan, best first: attending the event at a
+		 *         venue in the frontier, or (unless an event of the session is
+		 *         required) skipping the session.
+		 */
+		void expand(PlanTable table) {
+			final List<Integer> venues = new ArrayList<>(); // the choices
+			final Map<Integer, Double> value = new HashMap<>(); // their value
+			double skip = Double.NEGATIVE_INFINITY; // the value of skipping
+			for (int u = frontier.nextSetBit(0); u >= 0; u =
+					frontier.nextSetBit(u + 1)) {
+				if (table.attend[row][u]
+						&& table.best[row][u] > Double.NEGATIVE_INFINITY) {
+					venues.add(u);
+					value.put(u, score + table.best[row][u]);
+				}
+				skip = Math.max(skip, table.after[row][u]);
+			}
+			if (table.forced[row] < 0 && skip > Double.NEGATIVE_INFINITY) {
+				venues.add(-1);
+				value.put(-1, score + skip);
+			}
+			Collections.sort(venues, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer u1, Integer u2) {
+					return Double.compare(value.get(u2), value.get(u1));
+				}
+			});
+			choices = new int[venues.size()];
+			values = new double[venues.size()];
+			for (int c = 0; c < choices.length; c++) {
+				choices[c] = venues.get(c);
+				values[c] = value.get(choices[c]);
+			}
+		}
+
+		/**
+		 * @require table != null && 0 <= index < choices.length
+		 * @ensure Returns the partial plan that extends this one with the
+		 *         choice with the given index.
+		 */
+		PlanNode follow(int index, PlanTable table) {
+			int u = choices[index]; // the venue chosen (or -1)
+			BitSet at = frontier; // the venues that it is possible to be at
+			if (u >= 0) {
+				at = new BitSet(table.venueCount);
+				at.set(u);
+			}
+			if (row + 1 < table.events.length) {
+				at = advance(at, table.sessions[row], table.sessions[row + 1]);
+			}
+			if (u < 0) {
+				return new PlanNode(this, null, row + 1, at, score);
+			}
+			return new PlanNode(this, table.events[row][u], row + 1, at,
+					score + table.value[row][u]);
+		}
+
+		/**
+		 * @ensure Returns the events chosen so far, ordered by session.
+		 */
+		List<Event> plan() {
+			LinkedList<Event> plan = new LinkedList<>(); // events found so far
+			for (PlanNode node = this; node != null; node = node.parent) {
+				if (node.event != null) {
+					plan.addFirst(node.event);
+				}
+			}
+			return new ArrayList<>(plan);
+		}
+	}
+
+	/**
+	 * An alternative explored by topPlans: the choice with the given index of
+	 * a partial plan. Alternatives are ordered by the best total rating of a
+	 * plan that extends them, largest first, and then by how many sessions
+	 * they have chosen for, most first (so that ties are followed through to
+	 * a complete plan).
+	 */
+	private static class PlanChoice implements Comparable<PlanChoice> {
+		// the partial plan that the choice extends
+		PlanNode node;
+		// the index of the choice in node.choices
+		int index;
+
+		PlanChoice(PlanNode node, int index) {
+			this.node = node;
+			this.index = index;
+		}
+
+		@Override
+		public int compareTo(PlanChoice other) {
+			int result = Double.compare(other.node.values[other.index],
+					node.values[index]); // the order by rating
+			return result != 0 ? result : Integer.compare(other.node.row,
+					node.row);
+		}
+	}
+
 }
@@ -0,0 +1,468 @@
+package festival;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * <p>
+ * A line-up (as described by AbstractLineUp) that stores its events in a
+ * dense grid instead of the hashed and tree-based indexes of LineUp.
+ * </p>
+ *
+ * <p>
+ * Each venue used by the line-up is given a small integer id when it is first
+ * seen (and later found from its VenueRegistry id by an array lookup), and the
+ * event scheduled for a venue in a session is stored in a grid at position
+ * [id][session - 1]. Checking whether a venue is occupied, and
+ * retrieving the events for a venue or a session, are therefore array
+ * lookups. The grid has one row for each venue seen and one column for each
+ * session up to the last session seen, so this representation suits
+ * festivals whose venues and sessions are densely used.
+ * </p>
+ */
+public class GridLineUp extends AbstractLineUp {
+
+	// the initial number of sessions that each row of the grid can hold
+	private static final int INITIAL_SESSIONS = 16;
+
+	// one more than the id of each venue seen by the line-up, indexed by the
+	// venue's VenueRegistry id (0 for venues that have not been seen)
+	private int[] venueIds;
+	// the venue with each id
+	private List<Venue> venues;
+	// the ids of the venues seen, ordered by venue name
+	private int[] nameOrder;
+	// the event (or null) for each venue id and session - 1
+	private Event[][] grid;
+	// the number of events at each venue id
+	private int[] venueCounts;
+	// the number of events in each session - 1
+	private int[] sessionCounts;
+	// the number of events in the line-up
+	private int size;
+	// the first and last sessions with an event scheduled (0 if none)
+	private int firstSession;
+	private int lastSession;
+
+	/*
+	 * Invariant: venueIds, venues, nameOrder, grid, venueCounts and
+	 * sessionCounts != null && venueIds[VenueRegistry.find(venue)] - 1 is the
+	 * index in venues of each venue in venues (and venueIds has no other
+	 * non-zero entries) && nameOrder contains the ids of venues ordered by
+	 * venue name && every non-null grid[id][session - 1] is an event at
+	 * venues.get(id) in that session && venueCounts, sessionCounts and size
+	 * count the non-null entries of each row, each column and the whole grid
+	 * && (size == 0 ? firstSession == 0 && lastSession == 0 : firstSession and
+	 * lastSession are the first and last columns (plus one) with non-zero
+	 * sessionCounts)
+	 */
+
+	/**
+	 * Creates a new line-up with no events scheduled.
+	 */
+	public GridLineUp() {
+		venueIds = new int[0];
+		venues = new ArrayList<>();
+		nameOrder = new int[0];
+		grid = new Event[0][];
+		venueCounts = new int[0];
+		sessionCounts = new int[INITIAL_SESSIONS];
+		size = 0;
+		firstSession = 0;
+		lastSession = 0;
+	}
+
+	/**
+	 * If the line-up contains an event that is equivalent to this one, then it
+	 * is removed from the line-up. If there is no equivalent event, then the
+	 * line-up is unchanged by the operation.
+	 *
+	 * @param event
+	 *            the event to be removed from the line-up.
+	 */
+	@Override
+	public void removeEvent(Event event) {
+		if (event != null
+				&& event.equals(eventAt(event.getVenue(), event.getSession()))) {
+			clear(seenId(event.getVenue()), event.getSession());
+		}
+	}
+
+	/**
+	 * Returns a list of the events scheduled for the given venue, ordered by
+	 * session number (in ascending order).
+	 *
+	 * @param venue
+	 *            the venue for which the events will be retrieved
+	 * @return a list of the events scheduled for the given venue, ordered by
+	 *         session number
+	 * @throws NullPointerException
+	 *             if the given venue is null
+	 */
+	@Override
+	public List<Event> getEvents(Venue venue) {
+		if (venue == null) {
+			throw new NullPointerException(
+					"Cannot retrieve events for a null venue.");
+		}
+		List<Event> result = new ArrayList<>(); // the events for the venue
+		int id = seenId(venue); // the id of the venue
+		if (id >= 0 && venueCounts[id] > 0) {
+			Event[] row = grid[id]; // the events at the venue
+			for (int s = firstSession; s <= lastSession; s++) {
+				if (row[s - 1] != null) {
+					result.add(row[s - 1]);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a list of the events scheduled for the given session time (across
+	 * all venues), ordered by venue name (in ascending order).
+	 *
+	 * @param session
+	 *            the session to retrieve the events for
+	 * @return A list of the events scheduled for the given session time.
+	 * @throws InvalidSessionException
+	 *             if session <= 0
+	 */
+	@Override
+	public List<Event> getEvents(int session) {
+		if (session <= 0) {
+			throw new InvalidSessionException("Session number " + session
+					+ " must be positive");
+		}
+		List<Event> result = new ArrayList<>(); // the events in the session
+		if (session <= lastSession && sessionCounts[session - 1] > 0) {
+			for (int id : nameOrder) {
+				if (grid[id][session - 1] != null) {
+					result.add(grid[id][session - 1]);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a set of all the venues where at least one event from the line-up
+	 * takes place.
+	 *
+	 * @return The venues where events from the line-up will take place.
+	 */
+	@Override
+	public Set<Venue> getVenues() {
+		Set<Venue> result = new HashSet<>(); // venues used by the line-up
+		for (int id = 0; id < venues.size(); id++) {
+			if (venueCounts[id] > 0) {
+				result.add(venues.get(id));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * If there is at least one event scheduled, then this method returns the
+	 * number of the first session where there is an event scheduled. Otherwise
+	 * it returns 0.
+	 *
+	 * @return If there is at least one event scheduled, then the first session
+	 *         number that an event is scheduled for, and 0 otherwise.
+	 */
+	@Override
+	public int getFirstUsedSession() {
+		return firstSession;
+	}
+
+	/**
+	 * If there is at least one event scheduled, then this method returns the
+	 * number of the last session where there is an event scheduled. Otherwise
+	 * it returns 0.
+	 *
+	 * @return If there is at least one event scheduled, then the last session
+	 *         number that an event is scheduled for, and 0 otherwise.
+	 */
+	@Override
+	public int getLastUsedSession() {
+		return lastSession;
+	}
+
+	/**
+	 * Returns an iterator over the events in the line-up, in their natural
+	 * ordering. Events removed using the iterator are removed from the
+	 * line-up.
+	 */
+	@Override
+	public Iterator<Event> iterator() {
+		return new Iterator<Event>() {
+			// the position in nameOrder of the venue of the next event
+			private int venue = 0;
+			// the session of the next event
+			private int session = 0;
+			// the venue id and session of the event last returned by next()
+			private int currentId = -1;
+			private int currentSession = 0;
+
+			{
+				advance();
+			}
+
+			/**
+			 * Moves venue and session to the next occupied position of the
+			 * grid, starting from the position after the current one.
+			 */
+			private void advance() {
+				while (venue < nameOrder.length) {
+					Event[] row = grid[nameOrder[venue]]; // row of the venue
+					for (session++; session <= lastSession; session++) {
+						if (row[session - 1] != null) {
+							return;
+						}
+					}
+					venue++;
+					session = 0;
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return venue < nameOrder.length;
+			}
+
+			@Override
+			public Event next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				currentId = nameOrder[venue];
+				currentSession = session;
+				advance();
+				return grid[currentId][currentSession - 1];
+			}
+
+			@Override
+			public void remove() {
+				if (currentId < 0) {
+					throw new IllegalStateException();
+				}
+				clear(currentId, currentSession);
+				currentId = -1;
+			}
+		};
+	}
+
+	/**
+	 * Writes the string representation of the line-up (as described by
+	 * toString) to the given output, one event at a time. The line-up itself
+	 * is not modified.
+	 *
+	 * @param out
+	 *            the output to write the line-up to (e.g. a Writer or a
+	 *            StringBuilder)
+	 * @throws NullPointerException
+	 *             if out is null
+	 * @throws IOException
+	 *             if there is an error writing to out
+	 */
+	@Override
+	public void writeTo(Appendable out) throws IOException {
+		if (out == null) {
+			throw new NullPointerException("Cannot write to a null output.");
+		}
+		boolean first = true; // whether no event has been written yet
+		for (Event event : this) {
+			if (!first) {
+				out.append(LINE_SEPARATOR);
+			}
+			out.append(event.toString());
+			first = false;
+		}
+	}
+
+	/**
+	 * Returns every (venue, session) pair for which two or more different
+	 * events are scheduled. The grid holds at most one event for each venue
+	 * and session, so the result is always empty.
+	 *
+	 * @param parallel
+	 *            ignored
+	 * @return an empty map
+	 */
+	@Override
+	public Map<Venue, SortedSet<Integer>> getClashes(boolean parallel) {
+		return new HashMap<>();
+	}
+
+	/**
+	 * Determines whether this GridLineUp is internally consistent (i.e. it
+	 * satisfies its class invariant).
+	 *
+	 * @return true if this GridLineUp is internally consistent, and false
+	 *         otherwise.
+	 */
+	@Override
+	public boolean checkInvariant() {
+		if (venueIds == null || venues == null || nameOrder == null
+				|| grid == null || venueCounts == null || sessionCounts == null
+				|| nameOrder.length != venues.size()) {
+			return false;
+		}
+		int seen = 0; // the number of venues with a non-zero entry in venueIds
+		for (int localId : venueIds) {
+			if (localId != 0) {
+				seen++;
+			}
+		}
+		if (seen != venues.size()) {
+			return false;
+		}
+		int total = 0; // the number of events counted so far
+		int[] columns = new int[sessionCounts.length]; // events per session
+		for (int id = 0; id < venues.size(); id++) {
+			if (seenId(venues.get(id)) != id) {
+				return false;
+			}
+			int row = 0; // the number of events at the venue
+			for (int s = 1; s <= grid[id].length; s++) {
+				Event event = grid[id][s - 1]; // the event in the slot
+				if (event != null) {
+					if (!event.getVenue().equals(venues.get(id))
+							|| event.getSession() != s || s > lastSession
+							|| s < firstSession) {
+						return false;
+					}
+					row++;
+					columns[s - 1]++;
+				}
+			}
+			if (row != venueCounts[id]) {
+				return false;
+			}
+			total += row;
+		}
+		return total == size
+				&& Arrays.equals(columns, sessionCounts)
+				&& (size == 0 ? firstSession == 0 && lastSession == 0
+						: sessionCounts[firstSession - 1] > 0
+								&& sessionCounts[lastSession - 1] > 0);
+	}
+
+	/**
+	 * @require venue != null && session > 0
+	 * @ensure Returns the event scheduled for the venue in the session, or
+	 *         null if there is none.
+	 */
+	@Override
+	protected Event eventAt(Venue venue, int session) {
+		int id = seenId(venue); // the id of the venue
+		if (id < 0 || session > grid[id].length) {
+			return null;
+		}
+		return grid[id][session - 1];
+	}
+
+	/**
+	 * @require venue != null
+	 * @ensure Returns the id of the venue in this line-up, or -1 if it has not
+	 *         been seen before. (The venue is not interned, so looking up a
+	 *         venue does not add it to the VenueRegistry.)
+	 */
+	private int seenId(Venue venue) {
+		int registryId = VenueRegistry.find(venue); // the shared id, or -1
+		if (registryId < 0 || registryId >= venueIds.length) {
+			return -1;
+		}
+		return venueIds[registryId] - 1;
+	}
+
+	/**
+	 * @require venue != null
+	 * @ensure Returns the id of the venue, first giving it the next unused id
+	 *         (and a row in the grid) if it has not been seen before.
+	 */
+	private int venueId(Venue venue) {
+		int registryId = VenueRegistry.getId(venue); // the shared id
+		if (registryId < venueIds.length && venueIds[registryId] > 0) {
+			return venueIds[registryId] - 1;
+		}
+		if (registryId >= venueIds.length) {
+			venueIds = Arrays.copyOf(venueIds,
+					Math.max(registryId + 1, 2 * venueIds.length));
+		}
+		int id = venues.size(); // the id of the new venue
+		venueIds[registryId] = id + 1;
+		venues.add(venue);
+		grid = Arrays.copyOf(grid, id + 1);
+		grid[id] = new Event[sessionCounts.length];
+		venueCounts = Arrays.copyOf(venueCounts, id + 1);
+
+		// insert the new id into nameOrder, keeping it ordered by name
+		int position = 0; // the position of the new id in nameOrder
+		while (position < nameOrder.length
+				&& venues.get(nameOrder[position]).getName()
+						.compareTo(venue.getName()) < 0) {
+			position++;
+		}
+		int[] order = new int[nameOrder.length + 1]; // the new ordering
+		System.arraycopy(nameOrder, 0, order, 0, position);
+		order[position] = id;
+		System.arraycopy(nameOrder, position, order, position + 1,
+				nameOrder.length - position);
+		nameOrder = order;
+		return id;
+	}
+
+	/**
+	 * @require event != null && no event is scheduled for the venue and
+	 *          session of event
+	 * @ensure Stores the event in the grid, growing it if necessary.
+	 */
+	@Override
+	protected void store(Event event) {
+		int id = venueId(event.getVenue()); // the id of the venue
+		int session = event.getSession(); // the session of the event
+		if (session > sessionCounts.length) {
+			// the new number of sessions that each row can hold
+			int capacity = Math.max(session, 2 * sessionCounts.length);
+			sessionCounts = Arrays.copyOf(sessionCounts, capacity);
+			for (int v = 0; v < grid.length; v++) {
+				grid[v] = Arrays.copyOf(grid[v], capacity);
+			}
+		}
+		grid[id][session - 1] = event;
+		venueCounts[id]++;
+		sessionCounts[session - 1]++;
+		size++;
+		if (firstSession == 0 || session < firstSession) {
+			firstSession = session;
+		}
+		if (session > lastSession) {
+			lastSession = session;
+		}
+	}
+
+	/**
+	 * @require there is an event at venue id in the session
+	 * @ensure Removes the event at venue id in the session from the grid.
+	 */
+	private void clear(int id, int session) {
+		grid[id][session - 1] = null;
+		venueCounts[id]--;
+		sessionCounts[session - 1]--;
+		size--;
+		if (size == 0) {
+			firstSession = 0;
+			lastSession = 0;
+		} else if (sessionCounts[session - 1] == 0) {
+			// repair the bounds by moving them to the next used session
+			while (sessionCounts[firstSession - 1] == 0) {
+				firstSession++;
+			}
+			while (sessionCounts[lastSession - 1] == 0) {
+				lastSession--;
+			}
+		}
+	}
+
+}
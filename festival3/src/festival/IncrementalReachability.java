@@ -0,0 +1,280 @@
+package festival;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A reachability closure (as described by ReachabilityClosure) of a shuttle
+ * timetable that is kept up to date as services are added to and removed from
+ * the timetable.
+ * </p>
+ *
+ * <p>
+ * The closure listens to its timetable. When a service is added, the states
+ * that can reach the service's departure take the earlier of their own
+ * arrivals and those from the service's arrival; when a service is removed,
+ * only the states that could reach the service's departure are derived
+ * again, from the states of the following session. A full rebuild is only
+ * needed when a service uses a session or a venue beyond the closure's
+ * current capacity.
+ * </p>
+ *
+ * <p>
+ * Like ShuttleTimetable, this class is not safe to use from multiple threads
+ * while the timetable is being modified.
+ * </p>
+ */
+public class IncrementalReachability implements TimetableListener,
+		Reachability {
+
+	// the timetable that the closure is kept up to date with
+	private ShuttleTimetable timetable;
+	// the id of each venue that a service has departed from or arrived at
+	private Map<Venue, Integer> venueIds;
+	// the venue with each id
+	private List<Venue> venues;
+	// the number of sessions distinguished by the closure
+	private int sessionCount;
+	// the number of venues that the closure has room for
+	private int venueCapacity;
+	// earliest[t - 1][v][w] is the earliest session that venue w can be
+	// reached in time for from venue v at session t (0 if w is v, and
+	// Integer.MAX_VALUE if w cannot be reached)
+	private int[][][] earliest;
+
+	/*
+	 * Invariant: timetable != null && venueIds maps venues.get(id) to id &&
+	 * venues.size() <= venueCapacity && every service in timetable departs
+	 * before session sessionCount && earliest.length == sessionCount &&
+	 * earliest[t - 1].length == venueCapacity && earliest[t - 1][v] holds the
+	 * earliest arrivals from venue v at session t
+	 */
+
+	/**
+	 * Computes the reachability closure of the given timetable, and registers
+	 * to keep it up to date as the timetable changes.
+	 *
+	 * @param timetable
+	 *            the timetable to compute the closure of
+	 * @throws NullPointerException
+	 *             if timetable is null
+	 */
+	public IncrementalReachability(ShuttleTimetable timetable) {
+		if (timetable == null) {
+			throw new NullPointerException("The timetable cannot be null");
+		}
+		this.timetable = timetable;
+		venueIds = new HashMap<>();
+		venues = new ArrayList<>();
+		int lastSession = 0; // the last session that a service departs after
+		for (Service service : timetable) {
+			venueId(service.getSource());
+			venueId(service.getDestination());
+			lastSession = Math.max(lastSession, service.getSession());
+		}
+		rebuild(lastSession + 1, venues.size());
+		timetable.addListener(this);
+	}
+
+	/**
+	 * Stops keeping the closure up to date with the timetable. (The closure
+	 * should not be used after it has been closed.)
+	 */
+	public void close() {
+		timetable.removeListener(this);
+	}
+
+	/**
+	 * @require source != null && destination != null
+	 * @ensure Returns true if it is possible to be at the source's venue for
+	 *         the duration of the source's session, and then, using the
+	 *         available shuttle services (if necessary) to get there, be at the
+	 *         destination's venue in time for the given destination's session.
+	 **/
+	@Override
+	public boolean canReach(Event source, Event destination) {
+		return canReach(source.getVenue(), source.getSession(),
+				destination.getVenue(), destination.getSession());
+	}
+
+	/**
+	 * @require sourceVenue != null && destinationVenue != null &&
+	 *          sourceSession>0 && destinationSession >0
+	 * @ensure Returns true if it is possible to be at the source venue for the
+	 *         duration of the source session, and then, using the available
+	 *         shuttle services (if necessary) to get there, be at the
+	 *         destination venue in time for the given destination session.
+	 **/
+	public boolean canReach(Venue sourceVenue, int sourceSession,
+			Venue destinationVenue, int destinationSession) {
+		if (destinationSession < sourceSession) {
+			return false;
+		}
+		if (destinationSession == sourceSession
+				|| sourceVenue.equals(destinationVenue)) {
+			return sourceVenue.equals(destinationVenue);
+		}
+		Integer source = venueIds.get(sourceVenue); // id of the source
+		Integer destination = venueIds.get(destinationVenue); // its id
+		if (source == null || destination == null
+				|| sourceSession >= sessionCount) {
+			return false;
+		}
+		return earliest[sourceSession - 1][source][destination]
+				<= destinationSession;
+	}
+
+	/**
+	 * Updates the closure for a service that has been added to the timetable:
+	 * every state that can reach the departure of the service takes the
+	 * earlier of its own arrivals and those from the arrival of the service.
+	 *
+	 * @param service
+	 *            the service that was added
+	 */
+	@Override
+	public void serviceAdded(Service service) {
+		int source = venueId(service.getSource()); // id of the source
+		int destination = venueId(service.getDestination()); // its id
+		int session = service.getSession(); // the session of the service
+		if (session >= sessionCount || venues.size() > venueCapacity) {
+			rebuild(Math.max(session + 1, sessionCount + sessionCount / 2),
+					Math.max(venues.size(), venueCapacity + venueCapacity / 2));
+			return;
+		}
+		// the earliest arrivals from the arrival of the service
+		int[] arrival = earliest[session][destination];
+		for (int t = 1; t <= session; t++) {
+			for (int[] row : earliest[t - 1]) {
+				if (row[source] <= session) {
+					minInto(row, arrival, session + 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Updates the closure for a service that has been removed from the
+	 * timetable: working back from the session of the service, a state is
+	 * derived again only if it could reach the departure of the service and
+	 * the states it depends on in the following session have changed, so the
+	 * update stops as soon as the removal makes no further difference.
+	 *
+	 * @param service
+	 *            the service that was removed
+	 */
+	@Override
+	public void serviceRemoved(Service service) {
+		int source = venueIds.get(service.getSource()); // id of the source
+		int session = service.getSession(); // the session of the service
+		BitSet changed = new BitSet(); // venues whose states changed
+		if (derive(source, session)) {
+			changed.set(source);
+		}
+		for (int t = session - 1; t >= 1 && !changed.isEmpty(); t--) {
+			BitSet next = new BitSet(); // venues whose states at t changed
+			for (int v = 0; v < venues.size(); v++) {
+				if (earliest[t - 1][v][source] <= session
+						&& dependsOn(v, t, changed) && derive(v, t)) {
+					next.set(v);
+				}
+			}
+			changed = next;
+		}
+	}
+
+	/**
+	 * @require 0 <= v < venues.size() && session > 0 && changed != null
+	 * @ensure Returns true if the states reachable from venue v at the given
+	 *         session are derived from the states of a venue in changed at
+	 *         the following session.
+	 */
+	private boolean dependsOn(int v, int session, BitSet changed) {
+		if (changed.get(v)) {
+			return true;
+		}
+		for (Venue w : timetable.departures(venues.get(v), session)) {
+			if (changed.get(venueIds.get(w))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @require sessionCount > 0 && venueCapacity >= venues.size()
+	 * @ensure Computes every state of the closure from scratch, with room for
+	 *         the given numbers of sessions and venues.
+	 */
+	private void rebuild(int sessionCount, int venueCapacity) {
+		this.sessionCount = sessionCount;
+		this.venueCapacity = Math.max(venueCapacity, 1);
+		earliest = new int[sessionCount][this.venueCapacity][];
+		for (int t = sessionCount; t >= 1; t--) {
+			for (int v = 0; v < this.venueCapacity; v++) {
+				derive(v, t);
+			}
+		}
+	}
+
+	/**
+	 * @require 0 <= v < venueCapacity && 1 <= session <= sessionCount && the
+	 *          states of session + 1 are up to date
+	 * @ensure Computes the earliest arrivals from venue v at the given session
+	 *         from the states of the following session (the element-wise
+	 *         minimum of the arrivals from staying at v and of those from the
+	 *         venues that services depart v for at the end of the session),
+	 *         and returns true if they differ from those previously held for
+	 *         it.
+	 */
+	private boolean derive(int v, int session) {
+		// the earliest arrivals from v at the session
+		int[] row;
+		if (session < sessionCount) {
+			// arrivals from staying at v until the next session
+			row = earliest[session][v].clone();
+			// arrivals from a service departing at the end of session
+			if (v < venues.size()) {
+				for (Venue w : timetable.departures(venues.get(v), session)) {
+					minInto(row, earliest[session][venueIds.get(w)],
+							session + 1);
+				}
+			}
+		} else {
+			row = new int[venueCapacity];
+			Arrays.fill(row, Integer.MAX_VALUE);
+			row[v] = 0;
+		}
+		boolean changed = !Arrays.equals(row, earliest[session - 1][v]);
+		earliest[session - 1][v] = row;
+		return changed;
+	}
+
+	/**
+	 * @require row != null && next != null && row.length == next.length
+	 * @ensure Lowers each arrival in row to the arrival in next, if that is
+	 *         earlier, where the arrivals of next are no earlier than the given
+	 *         session (the session that next's venue is arrived in time for).
+	 */
+	private static void minInto(int[] row, int[] next, int arrival) {
+		for (int i = 0; i < next.length; i++) {
+			row[i] = Math.min(row[i], Math.max(next[i], arrival));
+		}
+	}
+
+	/**
+	 * @require venue != null
+	 * @ensure Returns the id of the venue, giving it the next unused id if it
+	 *         does not have one yet.
+	 */
+	private int venueId(Venue venue) {
+		Integer id = venueIds.get(venue); // the id of the venue
+		if (id == null) {
+			id = venues.size();
+			venueIds.put(venue, id);
+			venues.add(venue);
+		}
+		return id;
+	}
+
+}
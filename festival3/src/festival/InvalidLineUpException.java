@@ -1,17 +1,44 @@
 package festival;
 
+import java.util.*;
+
 /**
  * An exception indicating an invalid line up.
  */
 @SuppressWarnings("serial")
 public class InvalidLineUpException extends RuntimeException {
 
+	// each pair of clashing events that caused the exception: the event that
+	// could not be added, and the event occupying its venue and session
+	private final List<Event[]> clashes;
+
 	public InvalidLineUpException() {
 		super();
+		clashes = new ArrayList<>();
 	}
 
 	public InvalidLineUpException(String s) {
 		super(s);
+		clashes = new ArrayList<>();
+	}
+
+	/**
+	 * @require s != null && clashes != null && each element of clashes is an
+	 *          array of two events scheduled for the same venue and session
+	 * @ensure Creates a new exception caused by the given clashes.
+	 */
+	InvalidLineUpException(String s, List<Event[]> clashes) {
+		super(s);
+		this.clashes = clashes;
+	}
+
+	/**
+	 * @ensure Returns each pair of clashing events that caused the exception
+	 *         (the event that could not be added, followed by the event
+	 *         occupying its venue and session), in the order they were found.
+	 */
+	List<Event[]> getClashes() {
+		return clashes;
 	}
 
 }
@@ -0,0 +1,202 @@
+package festival;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable class representing a journey between venues at a festival.
+ * </p>
+ *
+ * <p>
+ * An itinerary starts at a source venue during a given session, and catches a
+ * sequence of shuttle services (its legs), each departing from the venue that
+ * the previous one arrived at (or from the source venue) after a later session
+ * than the previous one. It finishes at the venue the last leg arrives at (or
+ * at the source venue, if there are no legs), in time for the session after
+ * the last leg departs (or the starting session, if there are no legs).
+ * </p>
+ */
+public class Itinerary {
+
+	// the venue that the itinerary starts at
+	private Venue source;
+	// the session that the itinerary starts at the source venue during
+	private int session;
+	// the venue that the itinerary finishes at
+	private Venue destination;
+	// the itinerary arrives at its destination in time for this session
+	private int arrivalSession;
+	// the services caught by the itinerary, in the order they are caught
+	private List<Service> legs;
+
+	/*
+	 * Invariant: source != null && destination != null && session > 0 &&
+	 * legs != null && !legs.contains(null) && each leg departs from the
+	 * destination of the previous leg (or source, for the first) after a
+	 * session later than the previous leg's (or no earlier than session, for
+	 * the first) && destination is the destination of the last leg (or
+	 * source) && arrivalSession is one more than the session of the last leg
+	 * (or session)
+	 */
+
+	/**
+	 * Creates a new itinerary that starts at the source venue during the given
+	 * session and catches the given shuttle services in order.
+	 *
+	 * @param source
+	 *            the venue that the itinerary starts at
+	 * @param session
+	 *            the session that the itinerary starts during
+	 * @param legs
+	 *            the services that the itinerary catches, in order
+	 * @throws NullPointerException
+	 *             if source or legs is null, or legs contains null
+	 * @throws InvalidSessionException
+	 *             if session is not a positive integer
+	 * @throws InvalidServiceException
+	 *             if a leg does not depart from the venue that the itinerary
+	 *             is at, after a session that the itinerary is there for
+	 */
+	public Itinerary(Venue source, int session, List<Service> legs) {
+		if (source == null || legs == null) {
+			throw new NullPointerException("Parameters cannot be null");
+		}
+		if (session <= 0) {
+			throw new InvalidSessionException("Session number " + session
+					+ " must be positive");
+		}
+		Venue venue = source; // the venue reached so far
+		int arrival = session; // the session it is reached in time for
+		for (Service leg : legs) {
+			if (leg == null) {
+				throw new NullPointerException("Legs cannot be null");
+			}
+			if (!leg.getSource().equals(venue) || leg.getSession() < arrival) {
+				throw new InvalidServiceException("\"" + leg
+						+ "\" cannot be caught from " + venue + " in session "
+						+ arrival);
+			}
+			venue = leg.getDestination();
+			arrival = leg.getSession() + 1;
+		}
+		this.source = source;
+		this.session = session;
+		this.destination = venue;
+		this.arrivalSession = arrival;
+		this.legs = Collections.unmodifiableList(new ArrayList<>(legs));
+	}
+
+	/**
+	 * Returns the venue that the itinerary starts at.
+	 *
+	 * @return the source venue of the itinerary
+	 */
+	public Venue getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the session that the itinerary starts at its source venue
+	 * during.
+	 *
+	 * @return the starting session of the itinerary
+	 */
+	public int getSession() {
+		return session;
+	}
+
+	/**
+	 * Returns the venue that the itinerary finishes at.
+	 *
+	 * @return the destination venue of the itinerary
+	 */
+	public Venue getDestination() {
+		return destination;
+	}
+
+	/**
+	 * Returns the earliest session that the itinerary arrives at its
+	 * destination venue in time for.
+	 *
+	 * @return the arrival session of the itinerary
+	 */
+	public int getArrivalSession() {
+		return arrivalSession;
+	}
+
+	/**
+	 * Returns the services that the itinerary catches, in the order they are
+	 * caught. The returned list cannot be modified.
+	 *
+	 * @return the legs of the itinerary
+	 */
+	public List<Service> getLegs() {
+		return legs;
+	}
+
+	/**
+	 * Two itineraries are considered to be equal if they start at the same
+	 * venue during the same session, and catch the same services.
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof Itinerary)) {
+			return false;
+		}
+		Itinerary itinerary = (Itinerary) object; // itinerary to compare
+		return this.source.equals(itinerary.source)
+				&& this.session == itinerary.session
+				&& this.legs.equals(itinerary.legs);
+	}
+
+	@Override
+	public int hashCode() {
+		// calculates polynomial hashcode
+		final int prime = 31; // a prime
+		int result = 1; // hash code under construction
+		result = prime * result + source.hashCode();
+		result = prime * result + session;
+		result = prime * result + legs.hashCode();
+		return result;
+	}
+
+	/**
+	 * Returns a string of the form:
+	 *
+	 * "SOURCE SESSION to DESTINATION ARRIVAL: LEGS"
+	 *
+	 * where SOURCE and DESTINATION are the names of the source and destination
+	 * venues, SESSION and ARRIVAL are the starting and arrival sessions, and
+	 * LEGS is the string representation of the list of legs.
+	 */
+	@Override
+	public String toString() {
+		return source + " " + session + " to " + destination + " "
+				+ arrivalSession + ": " + legs;
+	}
+
+	/**
+	 * Determines whether this Itinerary is internally consistent (i.e. it
+	 * satisfies its class invariant).
+	 *
+	 * @return true if this Itinerary is internally consistent, and false
+	 *         otherwise.
+	 */
+	public boolean checkInvariant() {
+		if (source == null || destination == null || session <= 0
+				|| legs == null) {
+			return false;
+		}
+		Venue venue = source; // the venue reached so far
+		int arrival = session; // the session it is reached in time for
+		for (Service leg : legs) {
+			if (leg == null || !leg.getSource().equals(venue)
+					|| leg.getSession() < arrival) {
+				return false;
+			}
+			venue = leg.getDestination();
+			arrival = leg.getSession() + 1;
+		}
+		return destination.equals(venue) && arrivalSession == arrival;
+	}
+}
@@ -1,6 +1,8 @@
 package festival;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -25,69 +27,71 @@ import java.util.*;
  * for every session.
  * </p>
  */
-public class LineUp implements Iterable<Event> {
+public class LineUp extends AbstractLineUp {
 
-	// Correct line separator for executing machine (used in toString method)
-	private static String LINE_SEPARATOR = System.getProperty("line.separator");
+	// the number of events above which clashes are searched for in parallel
+	private static final int PARALLEL_THRESHOLD = 100000;
 
-	// the events in the line-up
-	private List<Event> events;
+	// the events in the line-up, in the order they were added
+	private Set<Event> events;
+	// the event scheduled for each occupied (venue, session) slot
+	private Map<Slot, Event> slots;
+	// the events scheduled at each venue (ordered by venue name), keyed by
+	// session
+	private NavigableMap<Venue, NavigableMap<Integer, Event>> venueEvents;
+	// the events scheduled in each session, keyed by venue name
+	private NavigableMap<Integer, NavigableMap<String, Event>> sessionEvents;
+	// the first and last sessions with an event scheduled (0 if none)
+	private int firstSession;
+	private int lastSession;
 
 	/*
 	 * Invariant: events!=null && !events.contains(null) && there are no two
-	 * events scheduled in the same venue for the same session
+	 * events scheduled in the same venue for the same session && slots != null
+	 * && slots maps the venue and session of each event in events to that
+	 * event, and has no other entries && venueEvents != null && venueEvents
+	 * maps each venue of an event in events to a non-empty map from the
+	 * sessions of the events at that venue to those events, and has no other
+	 * entries && sessionEvents != null && sessionEvents maps each session of
+	 * an event in events to a non-empty map from the venue names of the events
+	 * in that session to those events, and has no other entries &&
+	 * (sessionEvents.isEmpty() ? firstSession == 0 && lastSession == 0 :
+	 * firstSession == sessionEvents.firstKey() && lastSession ==
+	 * sessionEvents.lastKey())
 	 */
 
 	/**
 	 * Creates a new line-up with no events scheduled.
 	 */
 	public LineUp() {
-		events = new ArrayList<>();
+		events = new LinkedHashSet<>();
+		slots = new HashMap<>();
+		venueEvents = new TreeMap<>(new VenueNameComparator());
+		sessionEvents = new TreeMap<>();
+		firstSession = 0;
+		lastSession = 0;
 	}
 
 	/**
-	 * Adds a new event to the line-up.
-	 * 
-	 * @param event
-	 *            the event to be added to the line-up
-	 * @throws NullPointerException
-	 *             if event is null
-	 * @throws InvalidLineUpException
-	 *             if there is already an event scheduled for the same venue and
-	 *             session as the given event
+	 * @require venue != null && session > 0
+	 * @ensure Returns the event scheduled for the venue in the session, or
+	 *         null if there is none.
 	 */
-	public void addEvent(Event event) {
-		if (event == null) {
-			throw new NullPointerException(
-					"Cannot add a null event to a line-up.");
-		}
-		if (sessionTaken(event.getVenue(), event.getSession())) {
-			throw new InvalidLineUpException(
-					"Line up already includes an event at venue "
-							+ event.getVenue() + " at time "
-							+ event.getSession());
-		}
-		events.add(event);
+	@Override
+	protected Event eventAt(Venue venue, int session) {
+		return slots.get(new Slot(venue, session));
 	}
 
 	/**
-	 * Returns true if the given venue is already occupied for the given
-	 * session.
-	 * 
-	 * @param venue
-	 *            the venue to check
-	 * @param session
-	 *            the session to check
-	 * @return true if there is already an event scheduled for the given venue
-	 *         and session.
+	 * @require event != null && no event is scheduled for the venue and
+	 *          session of event
+	 * @ensure Adds the event to the events set and the indexes of the
+	 *         line-up.
 	 */
-	private boolean sessionTaken(Venue venue, int session) {
-		for (Event e : events) {
-			if (e.getVenue().equals(venue) && e.getSession() == session) {
-				return true;
-			}
-		}
-		return false;
+	@Override
+	protected void store(Event event) {
+		events.add(event);
+		index(event);
 	}
 
 	/**
@@ -98,8 +102,78 @@ public class LineUp implements Iterable<Event> {
 	 * @param event
 	 *            the event to be removed from the line-up.
 	 */
+	@Override
 	public void removeEvent(Event event) {
-		events.remove(event);
+		if (event == null) {
+			return;
+		}
+		if (event.equals(eventAt(event.getVenue(), event.getSession()))) {
+			events.remove(event);
+			unindex(event);
+		}
+	}
+
+	/**
+	 * @require event != null && event is in the events set, and no other
+	 *          event is scheduled for the same venue and session
+	 * @ensure Adds the event to the indexes of the line-up.
+	 */
+	private void index(Event event) {
+		slots.put(new Slot(event.getVenue(), event.getSession()), event);
+		// the events at the venue of the event
+		NavigableMap<Integer, Event> atVenue =
+				venueEvents.get(event.getVenue());
+		if (atVenue == null) {
+			atVenue = new TreeMap<>();
+			venueEvents.put(event.getVenue(), atVenue);
+		}
+		atVenue.put(event.getSession(), event);
+		// the events in the session of the event
+		NavigableMap<String, Event> inSession =
+				sessionEvents.get(event.getSession());
+		if (inSession == null) {
+			inSession = new TreeMap<>();
+			sessionEvents.put(event.getSession(), inSession);
+			if (firstSession == 0 || event.getSession() < firstSession) {
+				firstSession = event.getSession();
+			}
+			if (event.getSession() > lastSession) {
+				lastSession = event.getSession();
+			}
+		}
+		inSession.put(event.getVenue().getName(), event);
+	}
+
+	/**
+	 * @require event != null && event has been removed from the events set,
+	 *          and is indexed by the line-up
+	 * @ensure Removes the event from the indexes of the line-up.
+	 */
+	private void unindex(Event event) {
+		slots.remove(new Slot(event.getVenue(), event.getSession()));
+		// the events at the venue of the event
+		NavigableMap<Integer, Event> atVenue =
+				venueEvents.get(event.getVenue());
+		atVenue.remove(event.getSession());
+		if (atVenue.isEmpty()) {
+			venueEvents.remove(event.getVenue());
+		}
+		// the events in the session of the event
+		NavigableMap<String, Event> inSession =
+				sessionEvents.get(event.getSession());
+		inSession.remove(event.getVenue().getName());
+		if (inSession.isEmpty()) {
+			sessionEvents.remove(event.getSession());
+			// repair the bounds from the remaining sessions, if necessary
+			if (sessionEvents.isEmpty()) {
+				firstSession = 0;
+				lastSession = 0;
+			} else if (event.getSession() == firstSession) {
+				firstSession = sessionEvents.firstKey();
+			} else if (event.getSession() == lastSession) {
+				lastSession = sessionEvents.lastKey();
+			}
+		}
 	}
 
 	/**
@@ -113,20 +187,18 @@ public class LineUp implements Iterable<Event> {
 	 * @throws NullPointerException
 	 *             if the given venue is null
 	 */
+	@Override
 	public List<Event> getEvents(Venue venue) {
 		if (venue == null) {
 			throw new NullPointerException(
 					"Cannot retrieve events for a null venue.");
 		}
-		// the events for the given venue
-		List<Event> venueEvents = new ArrayList<>();
-		for (Event e : events) {
-			if (venue.equals(e.getVenue())) {
-				venueEvents.add(e);
-			}
+		// the events for the given venue, ordered by session
+		NavigableMap<Integer, Event> atVenue = venueEvents.get(venue);
+		if (atVenue == null) {
+			return new ArrayList<>();
 		}
-		Collections.sort(venueEvents);
-		return venueEvents;
+		return new ArrayList<>(atVenue.values());
 	}
 
 	/**
@@ -140,20 +212,18 @@ public class LineUp implements Iterable<Event> {
 	 * @throws InvalidSessionException
 	 *             if session <= 0
 	 */
+	@Override
 	public List<Event> getEvents(int session) {
 		if (session <= 0) {
 			throw new InvalidSessionException("Session number " + session
 					+ " must be positive");
 		}
-		// the events for the given session
-		List<Event> sessionEvents = new ArrayList<>();
-		for (Event e : events) {
-			if (session == e.getSession()) {
-				sessionEvents.add(e);
-			}
+		// the events for the given session, ordered by venue name
+		NavigableMap<String, Event> inSession = sessionEvents.get(session);
+		if (inSession == null) {
+			return new ArrayList<>();
 		}
-		Collections.sort(sessionEvents);
-		return sessionEvents;
+		return new ArrayList<>(inSession.values());
 	}
 
 	/**
@@ -162,12 +232,9 @@ public class LineUp implements Iterable<Event> {
 	 * 
 	 * @return The venues where events from the line-up will take place.
 	 */
+	@Override
 	public Set<Venue> getVenues() {
-		Set<Venue> venues = new HashSet<>(); // venues used by the line-up
-		for (Event e : events) {
-			venues.add(e.getVenue());
-		}
-		return venues;
+		return new HashSet<>(venueEvents.keySet());
 	}
 
 	/**
@@ -178,18 +245,9 @@ public class LineUp implements Iterable<Event> {
 	 * @return If there is at least one event scheduled, then the first session
 	 *         number that an event is scheduled for, and 0 otherwise.
 	 */
+	@Override
 	public int getFirstUsedSession() {
-		if (events.isEmpty()) {
-			return 0;
-		}
-		// the minimum session number that there is an event scheduled for
-		int result = events.get(0).getSession();
-		for (Event e : events) {
-			if (e.getSession() < result) {
-				result = e.getSession();
-			}
-		}
-		return result;
+		return firstSession;
 	}
 
 	/**
@@ -200,49 +258,71 @@ public class LineUp implements Iterable<Event> {
 	 * @return If there is at least one event scheduled, then the last session
 	 *         number that an event is scheduled for, and 0 otherwise.
 	 */
+	@Override
 	public int getLastUsedSession() {
-		if (events.isEmpty()) {
-			return 0;
-		}
-		// the maximum session number that there is an event scheduled for
-		int result = events.get(0).getSession();
-		for (Event e : events) {
-			if (e.getSession() > result) {
-				result = e.getSession();
-			}
-		}
-		return result;
+		return lastSession;
 	}
 
 	/**
-	 * Returns an iterator over the events in the line-up.
+	 * Returns an iterator over the events in the line-up. Events removed using
+	 * the iterator are removed from the line-up.
 	 */
 	@Override
 	public Iterator<Event> iterator() {
-		return events.iterator();
+		// the underlying iterator over the events set
+		final Iterator<Event> iterator = events.iterator();
+		return new Iterator<Event>() {
+			// the event most recently returned by next()
+			private Event current;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Event next() {
+				current = iterator.next();
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				unindex(current);
+			}
+		};
 	}
 
 	/**
-	 * The string representation of a line-up contains a line-separated
-	 * concatenation of the string representations of the events in the line up.
-	 * The events in the line-up should be ordered using their natural ordering
-	 * (i.e. using the compareTo method defined in the Event class).
+	 * Writes the string representation of the line-up (as described by
+	 * toString) to the given output, one event at a time. The line-up itself
+	 * is not modified.
 	 * 
-	 * The line separator string used to separate the events should be retrieved
-	 * in a machine-independent way by calling the function
-	 * System.getProperty("line.separator").
+	 * @param out
+	 *            the output to write the line-up to (e.g. a Writer or a
+	 *            StringBuilder)
+	 * @throws NullPointerException
+	 *             if out is null
+	 * @throws IOException
+	 *             if there is an error writing to out
 	 */
 	@Override
-	public String toString() {
-		Collections.sort(events);
-		String result = ""; // the string representation under construction
-		for (int i = 0; i < events.size(); i++) {
-			if (i != 0) {
-				result += LINE_SEPARATOR;
+	public void writeTo(Appendable out) throws IOException {
+		if (out == null) {
+			throw new NullPointerException("Cannot write to a null output.");
+		}
+		boolean first = true; // whether no event has been written yet
+		// the index visits venues by name, and each venue's events by session
+		for (NavigableMap<Integer, Event> atVenue : venueEvents.values()) {
+			for (Event event : atVenue.values()) {
+				if (!first) {
+					out.append(LINE_SEPARATOR);
+				}
+				out.append(event.toString());
+				first = false;
 			}
-			result = result + events.get(i).toString();
 		}
-		return result;
 	}
 
 	/**
@@ -252,8 +332,54 @@ public class LineUp implements Iterable<Event> {
 	 * @return true if this LineUp is internally consistent, and false
 	 *         otherwise.
 	 */
+	@Override
 	public boolean checkInvariant() {
-		return (events != null && !events.contains(null) && !eventsClash());
+		return (events != null && !events.contains(null) && !eventsClash()
+				&& slots != null && slots.size() == events.size()
+				&& venueEvents != null && venueEventCount() == events.size()
+				&& sessionEvents != null
+				&& sessionEventCount() == events.size() && sessionBoundsValid());
+	}
+
+	/**
+	 * Returns the number of events held in the per-venue index.
+	 * 
+	 * @return the total number of events over all venues in venueEvents
+	 */
+	private int venueEventCount() {
+		int count = 0; // the number of events counted so far
+		for (NavigableMap<Integer, Event> atVenue : venueEvents.values()) {
+			count += atVenue.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of events held in the per-session index.
+	 * 
+	 * @return the total number of events over all sessions in sessionEvents
+	 */
+	private int sessionEventCount() {
+		int count = 0; // the number of events counted so far
+		for (NavigableMap<String, Event> inSession : sessionEvents.values()) {
+			count += inSession.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns true if the cached first and last used sessions agree with the
+	 * per-session index.
+	 * 
+	 * @return true if firstSession and lastSession are the first and last keys
+	 *         of sessionEvents (or both 0 if it is empty)
+	 */
+	private boolean sessionBoundsValid() {
+		if (sessionEvents.isEmpty()) {
+			return firstSession == 0 && lastSession == 0;
+		}
+		return firstSession == sessionEvents.firstKey()
+				&& lastSession == sessionEvents.lastKey();
 	}
 
 	/**
@@ -264,15 +390,90 @@ public class LineUp implements Iterable<Event> {
 	 *         at the same time
 	 */
 	private boolean eventsClash() {
-		for (Event a : events) {
-			for (Event b : events) {
-				if (!a.equals(b) && a.getVenue().equals(b.getVenue())
-						&& a.getSession() == b.getSession()) {
-					return true;
+		return !getClashes().isEmpty();
+	}
+
+	/**
+	 * Returns every (venue, session) pair for which two or more different
+	 * events are scheduled, found in a single pass over the events. Line-ups
+	 * with at least PARALLEL_THRESHOLD events are checked in parallel.
+	 * 
+	 * (A line-up that satisfies its invariant has no clashes, so this is
+	 * mainly useful for diagnosing a line-up that fails checkInvariant.)
+	 * 
+	 * @return a map from each venue with a clash (ordered by venue name) to
+	 *         the sessions (in ascending order) in which more than one event
+	 *         is scheduled at that venue
+	 */
+	@Override
+	public Map<Venue, SortedSet<Integer>> getClashes() {
+		return getClashes(events.size() >= PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * Returns every (venue, session) pair for which two or more different
+	 * events are scheduled, as described by getClashes().
+	 * 
+	 * @param parallel
+	 *            whether the events should be grouped in parallel
+	 * @return a map from each venue with a clash (ordered by venue name) to
+	 *         the sessions (in ascending order) in which more than one event
+	 *         is scheduled at that venue
+	 */
+	@Override
+	public Map<Venue, SortedSet<Integer>> getClashes(boolean parallel) {
+		// the clashes found, by venue
+		Map<Venue, SortedSet<Integer>> clashes =
+				new TreeMap<>(new VenueNameComparator());
+		if (parallel) {
+			// the distinct events in each slot, grouped concurrently
+			Map<Slot, Set<Event>> bySlot =
+					events.parallelStream().collect(
+							Collectors.groupingByConcurrent(
+									e -> new Slot(e.getVenue(), e.getSession()),
+									Collectors.toSet()));
+			for (Map.Entry<Slot, Set<Event>> entry : bySlot.entrySet()) {
+				if (entry.getValue().size() > 1) {
+					addClash(clashes, entry.getKey());
 				}
 			}
+		} else {
+			// the first event seen in each slot
+			Map<Slot, Event> seen = new HashMap<>();
+			for (Event e : events) {
+				Slot slot = new Slot(e.getVenue(), e.getSession());
+				Event previous = seen.put(slot, e);
+				if (previous != null && !previous.equals(e)) {
+					addClash(clashes, slot);
+				}
+			}
+		}
+		return clashes;
+	}
+
+	/**
+	 * @require clashes != null && slot != null
+	 * @ensure Records the venue and session of slot in clashes.
+	 */
+	private static void addClash(Map<Venue, SortedSet<Integer>> clashes,
+			Slot slot) {
+		// the clashing sessions already recorded for the venue
+		SortedSet<Integer> sessions = clashes.get(slot.venue);
+		if (sessions == null) {
+			sessions = new TreeSet<>();
+			clashes.put(slot.venue, sessions);
+		}
+		sessions.add(slot.session);
+	}
+
+	/**
+	 * Orders venues by (the lexicographical ordering of) their names.
+	 */
+	private static class VenueNameComparator implements Comparator<Venue> {
+		@Override
+		public int compare(Venue v1, Venue v2) {
+			return v1.getName().compareTo(v2.getName());
 		}
-		return false;
 	}
 
 }
@@ -10,6 +10,11 @@ import java.util.regex.Pattern;
  */
 public class LineUpReader {
 
+	// the pattern that the string representation of an event should conform
+	// to
+	private static final Pattern EVENT_PATTERN =
+			Pattern.compile("([\\w ]+): session \\+?(\\d+) at (\\S+)");
+
 	/**
 	 * <p>
 	 * Reads a text file called fileName that describes the events in the
@@ -40,34 +45,83 @@ public class LineUpReader {
 	 * @throws IOException
 	 *             if there is an error reading from the input file.
 	 * @throws FormatException
-	 *             if there is an error with the input format.
+	 *             if there is an error with the input format. The first error
+	 *             described is the one on the earliest line of the file:
+	 *             either an incorrectly formatted event, or an event scheduled
+	 *             for the same venue and session as an event on an earlier
+	 *             line (in which case every such clash read is described).
 	 */
 	public static LineUp read(String fileName) throws IOException,
 			FormatException {
 		// scanner for reading the file
 		Scanner in = new Scanner(new FileReader(fileName));
 		LineUp lineUp = new LineUp();// the line-up to be returned
+		List<Event> events = new ArrayList<>();// the events read so far
+		// the line that each event read so far was read from
+		Map<Event, Integer> lineNumbers = new IdentityHashMap<>();
 		int lineNumber = 0;// the number of the line being read
 
 		try {
 			// read in the events from the line-up, one per line
 			while (in.hasNextLine()) {
+				Event event; // the event on the line
 				try {
-					Event event = readEventString(++lineNumber, in.nextLine());
-					lineUp.addEvent(event);
-				} catch (InvalidLineUpException e) {
-					throw new FormatException("Line " + lineNumber
-							+ ": more than one event scheduled for"
-							+ " the same time and session");
+					event = readEventString(++lineNumber, in.nextLine());
+				} catch (FormatException e) {
+					// a clash on an earlier line is reported in preference
+					addAll(new LineUp(), events, lineNumbers);
+					throw e;
 				}
-
+				events.add(event);
+				lineNumbers.put(event, lineNumber);
 			}
 		} finally {
 			in.close();
 		}
+		addAll(lineUp, events, lineNumbers);
 		return lineUp;
 	}
 
+	/**
+	 * @require lineUp != null && events != null && !events.contains(null) &&
+	 *          lineNumbers maps each event to the line it was read from
+	 * @ensure Adds all of the events to the line-up, or throws a
+	 *         FormatException describing every clash between them (or with
+	 *         the events of the line-up), and leaves the line-up unchanged.
+	 */
+	private static void addAll(LineUp lineUp, List<Event> events,
+			Map<Event, Integer> lineNumbers) throws FormatException {
+		try {
+			lineUp.addAll(events);
+		} catch (InvalidLineUpException e) {
+			throw new FormatException(clashMessage(e.getClashes(),
+					lineNumbers));
+		}
+	}
+
+	/**
+	 * @require clashes != null && !clashes.isEmpty() && lineNumbers maps both
+	 *          events of each clash to the line they were read from
+	 * @ensure Returns a message describing every clash, one per line, each
+	 *         starting with the line number of the event that clashed.
+	 */
+	private static String clashMessage(List<Event[]> clashes,
+			Map<Event, Integer> lineNumbers) {
+		// the message under construction
+		StringBuilder message = new StringBuilder();
+		for (Event[] clash : clashes) {
+			if (message.length() > 0) {
+				message.append(System.getProperty("line.separator"));
+			}
+			message.append("Line " + lineNumbers.get(clash[0])
+					+ ": more than one event scheduled for the same time and "
+					+ "session (\"" + clash[0] + "\" clashes with \""
+					+ clash[1] + "\" on line " + lineNumbers.get(clash[1])
+					+ ")");
+		}
+		return message.toString();
+	}
+
 	/**
 	 * <p>
 	 * Reads and returns the event from the given line of the file.
@@ -101,11 +155,8 @@ public class LineUpReader {
 		int session; // session of the event on line
 		String act; // act of the event on line
 
-		// the pattern that the string representation of the event should
-		// conform to, and the matcher for matching the string to the pattern
-		Pattern pattern =
-				Pattern.compile("([\\w ]+): session \\+?(\\d+) at (\\S+)");
-		Matcher matcher = pattern.matcher(line);
+		// the matcher for matching the string to the event pattern
+		Matcher matcher = EVENT_PATTERN.matcher(line);
 
 		// retrieve venue, session and act if pattern matches the line
 		if (matcher.matches()) {
@@ -122,7 +173,7 @@ public class LineUpReader {
 						+ ": event incorrectly formatted. " + matcher.group(2)
 						+ " is not a positive integer");
 			}
-			venue = new Venue(matcher.group(3));
+			venue = VenueRegistry.intern(matcher.group(3));
 		} else {
 			throw new FormatException("Line " + lineNumber
 					+ ": event incorrectly formatted");
@@ -0,0 +1,24 @@
+package festival;
+
+/**
+ * A source of answers to reachability questions about a shuttle timetable
+ * (e.g. a DayPlanner, a ReachabilityCache of a day-planner's answers, or an
+ * IncrementalReachability).
+ */
+public interface Reachability {
+
+	/**
+	 * Returns true if it is possible to be at the source's venue for the
+	 * duration of the source's session, and then, using the available shuttle
+	 * services (if necessary) to get there, be at the destination's venue in
+	 * time for the destination's session.
+	 * 
+	 * @param source
+	 *            the event to start from
+	 * @param destination
+	 *            the event to reach
+	 * @return true if the destination can be reached from the source
+	 */
+	boolean canReach(Event source, Event destination);
+
+}
@@ -0,0 +1,275 @@
+package festival;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * A bounded cache of the answers to reachability questions (as answered by
+ * DayPlanner.canReach) about a shuttle timetable, that can be shared by any
+ * number of threads without locking.
+ * </p>
+ *
+ * <p>
+ * Each question (source venue, source session, destination venue,
+ * destination session) is packed, using the venue ids given by
+ * VenueRegistry, into a single long along with its answer, and stored in a
+ * fixed-size table in one of the two slots given by a hash of the question.
+ * A new answer goes in the first slot, moving the answer there to the second
+ * slot and evicting the one that was in the second slot. Questions about
+ * venues that have not been interned, or about venue ids or sessions too
+ * large to pack, are answered without the cache (and without interning the
+ * venues).
+ * </p>
+ *
+ * <p>
+ * The cache listens to its timetable. Adding a service can only make a
+ * question that spans the service's session answerable with yes, and removing
+ * one can only make such a question answerable with no, so only those cached
+ * answers are discarded. Finding them scans the whole table, so each change
+ * to the timetable takes time linear in the capacity of the cache: the cache
+ * suits timetables that change rarely compared with how often they are
+ * queried. The timetable must not be modified while a question is being
+ * answered.
+ * </p>
+ */
+public class ReachabilityCache implements TimetableListener, Reachability {
+
+	// the number of bits used for each venue id and session in a key
+	private static final int BITS = 15;
+	// the largest venue id or session that can be packed into a key
+	private static final int LIMIT = (1 << BITS) - 1;
+	// the bits of an entry that hold its key
+	private static final long KEY = (1L << 4 * BITS) - 1;
+	// the bit of an entry that holds its answer
+	private static final long ANSWER = 1L << 4 * BITS;
+	// the bit that is set in every entry (so that 0 is an empty slot)
+	private static final long USED = 1L << 4 * BITS + 1;
+
+	// the timetable that the questions are about
+	private final ShuttleTimetable timetable;
+	// the day-planner for the current version of the timetable (or null if
+	// the timetable has changed since it was last compiled)
+	private volatile DayPlanner planner;
+	// the cached entries: each is 0, or USED | (ANSWER if the answer is yes)
+	// | the key of the question
+	private final AtomicLongArray entries;
+	// the number of bits in an index of entries
+	private final int indexBits;
+	// the number of questions answered from the cache
+	private final LongAdder hits;
+	// the number of questions that were not in the cache
+	private final LongAdder misses;
+
+	/*
+	 * Invariant: timetable != null && entries.length() == 1 << indexBits &&
+	 * each non-zero entry holds the answer for the current version of the
+	 * timetable to the question packed in its key
+	 */
+
+	/**
+	 * Creates a new empty cache for questions about the given timetable, with
+	 * room for at least the given number of answers, and registers to be told
+	 * about changes to the timetable.
+	 *
+	 * @param timetable
+	 *            the timetable that questions are about
+	 * @param capacity
+	 *            the number of answers to make room for (which is rounded up to
+	 *            a power of two)
+	 * @throws NullPointerException
+	 *             if timetable is null
+	 * @throws IllegalArgumentException
+	 *             if capacity is not positive, or is more than 2^30
+	 */
+	public ReachabilityCache(ShuttleTimetable timetable, int capacity) {
+		if (timetable == null) {
+			throw new NullPointerException("The timetable cannot be null");
+		}
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity " + capacity
+					+ " must be between 1 and " + (1 << 30));
+		}
+		this.timetable = timetable;
+		this.indexBits = Math.max(1,
+				32 - Integer.numberOfLeadingZeros(capacity - 1));
+		this.entries = new AtomicLongArray(1 << indexBits);
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		timetable.addListener(this);
+	}
+
+	/**
+	 * Stops listening to the timetable. (The cache should not be used after it
+	 * has been closed.)
+	 */
+	public void close() {
+		timetable.removeListener(this);
+	}
+
+	/**
+	 * @require source != null && destination != null
+	 * @ensure Returns true if it is possible to be at the source's venue for
+	 *         the duration of the source's session, and then, using the
+	 *         available shuttle services (if necessary) to get there, be at the
+	 *         destination's venue in time for the given destination's session.
+	 **/
+	@Override
+	public boolean canReach(Event source, Event destination) {
+		return canReach(source.getVenue(), source.getSession(),
+				destination.getVenue(), destination.getSession());
+	}
+
+	/**
+	 * @require sourceVenue != null && destinationVenue != null &&
+	 *          sourceSession>0 && destinationSession >0
+	 * @ensure Returns true if it is possible to be at the source venue for the
+	 *         duration of the source session, and then, using the available
+	 *         shuttle services (if necessary) to get there, be at the
+	 *         destination venue in time for the given destination session.
+	 **/
+	public boolean canReach(Venue sourceVenue, int sourceSession,
+			Venue destinationVenue, int destinationSession) {
+		DayPlanner current = planner(); // the day-planner to ask
+		int source = VenueRegistry.find(sourceVenue); // id of the source
+		int destination = VenueRegistry.find(destinationVenue); // its id
+		if (destinationSession <= sourceSession || source == destination
+				|| source < 0 || destination < 0 || source > LIMIT
+				|| destination > LIMIT || destinationSession > LIMIT) {
+			// trivial, about a venue that has not been interned, or too large
+			// to pack
+			return current.canReach(new Event(sourceVenue, sourceSession,
+					"source"), new Event(destinationVenue, destinationSession,
+					"destination"));
+		}
+		long key = ((long) source << 3 * BITS)
+				| ((long) sourceSession << 2 * BITS)
+				| ((long) destination << BITS) | destinationSession;
+		int index = index(key); // the first slot of the question's entry
+		for (int i = index; i <= index + 1; i++) {
+			long entry = entries.get(i); // the entry in the slot
+			if ((entry & USED) != 0 && (entry & KEY) == key) {
+				hits.increment();
+				return (entry & ANSWER) != 0;
+			}
+		}
+		misses.increment();
+		boolean answer = current.canReach(new Event(sourceVenue,
+				sourceSession, "source"), new Event(destinationVenue,
+				destinationSession, "destination"));
+		// only cache the answer if the timetable has not changed meanwhile
+		if (planner == current) {
+			entries.set(index + 1, entries.get(index));
+			entries.set(index, USED | (answer ? ANSWER : 0) | key);
+		}
+		return answer;
+	}
+
+	/**
+	 * Returns the day-planner for the current version of the timetable, which
+	 * answers the questions that are not in the cache (compiling it first if
+	 * the timetable has changed since it was last compiled).
+	 *
+	 * @return the day-planner that the cache is in front of
+	 */
+	public DayPlanner getPlanner() {
+		return planner();
+	}
+
+	/**
+	 * Returns the number of questions that were answered from the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of questions that were not answered from the cache.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of answers that the cache has room for.
+	 *
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity() {
+		return entries.length();
+	}
+
+	/**
+	 * Discards the cached "no" answers to questions that span the session of
+	 * the service that was added.
+	 *
+	 * @param service
+	 *            the service that was added
+	 */
+	@Override
+	public void serviceAdded(Service service) {
+		invalidate(service.getSession(), false);
+	}
+
+	/**
+	 * Discards the cached "yes" answers to questions that span the session of
+	 * the service that was removed.
+	 *
+	 * @param service
+	 *            the service that was removed
+	 */
+	@Override
+	public void serviceRemoved(Service service) {
+		invalidate(service.getSession(), true);
+	}
+
+	/**
+	 * @ensure Returns the day-planner for the current version of the
+	 *         timetable, compiling it if the timetable has changed.
+	 */
+	private DayPlanner planner() {
+		DayPlanner result = planner; // the current day-planner, if compiled
+		if (result == null) {
+			synchronized (this) {
+				result = planner;
+				if (result == null) {
+					result = new DayPlanner(timetable);
+					planner = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @require session > 0
+	 * @ensure Marks the day-planner to be compiled again, and discards the
+	 *         cached entries with the given answer for questions from a
+	 *         session no later than the given one to a later session.
+	 */
+	private void invalidate(int session, boolean answer) {
+		planner = null;
+		for (int i = 0; i < entries.length(); i++) {
+			long entry = entries.get(i); // the entry to check
+			if ((entry & USED) != 0 && ((entry & ANSWER) != 0) == answer
+					&& ((entry >>> 2 * BITS) & LIMIT) <= session
+					&& (entry & LIMIT) > session) {
+				entries.compareAndSet(i, entry, 0);
+			}
+		}
+	}
+
+	/**
+	 * @require key >= 0
+	 * @ensure Returns the (even) position in entries of the first of the two
+	 *         slots for the given key.
+	 */
+	private int index(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - indexBits)) & ~1;
+	}
+
+}
@@ -0,0 +1,176 @@
+package festival;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * An immutable, precomputed answer to every reachability question about a
+ * shuttle timetable.
+ * </p>
+ *
+ * <p>
+ * For every venue v and session t, the closure stores, for each venue w, the
+ * earliest session that it is possible to be at w in time for, by being at v
+ * for session t and then using the available shuttle services. Answering
+ * whether one (venue, session) state can be reached from another is then a
+ * single comparison.
+ * </p>
+ *
+ * <p>
+ * The closure only needs to distinguish the sessions that services depart
+ * after: being at a venue during a session is the same as being there during
+ * the next session that a service departs after (or during any session after
+ * the last one). Storing it takes roughly V * V * S integers for V venues and
+ * S such sessions.
+ * </p>
+ */
+public final class ReachabilityClosure {
+
+	// the timetable that the closure was computed for
+	private final CompiledTimetable timetable;
+	// the number of venues
+	private final int venueCount;
+	// the number of states of each venue distinguished by the closure: state
+	// i of a venue is being there in time for the services departing at the
+	// end of the session with index i (as given by
+	// CompiledTimetable.departureSession), or after all of them if i is
+	// timetable.departureCount()
+	private final int stateCount;
+	// earliest[i][v][w] is the earliest session that venue w can be reached
+	// in time for from state i of venue v (0 if w is v, and
+	// Integer.MAX_VALUE if w cannot be reached); rows that would be equal to
+	// the row of the next state are shared with it
+	private final int[][][] earliest;
+
+	/*
+	 * Invariant: timetable != null && venueCount == timetable.venueCount() &&
+	 * stateCount == timetable.departureCount() + 1 && earliest.length ==
+	 * stateCount && earliest[i][v].length == venueCount
+	 */
+
+	/**
+	 * @require timetable != null && pool != null
+	 * @ensure Computes the closure of the given timetable, working on the
+	 *         states of each session in parallel in the given pool.
+	 */
+	ReachabilityClosure(CompiledTimetable timetable, ForkJoinPool pool) {
+		this.timetable = timetable;
+		this.venueCount = timetable.venueCount();
+		this.stateCount = timetable.departureCount() + 1;
+		this.earliest = new int[stateCount][venueCount][];
+
+		// each state depends only on the states that follow it, so the states
+		// are computed backwards, and the venues of a state in parallel
+		for (int i = stateCount - 1; i >= 0; i--) {
+			final int state = i;
+			pool.submit(
+					() -> IntStream.range(0, venueCount).parallel()
+							.forEach(v -> compute(v, state)))
+					.join();
+		}
+	}
+
+	/**
+	 * @require 0 <= v < venueCount && 0 <= state < stateCount && the states
+	 *          after the given one have been computed
+	 * @ensure Computes the earliest arrivals from the given state of venue v:
+	 *         the element-wise minimum of the arrivals from staying at v until
+	 *         the next state and of those from the venues that services
+	 *         depart v for at the end of the session of the state.
+	 */
+	private void compute(int v, int state) {
+		if (state == stateCount - 1) {
+			// no services depart after the last state
+			int[] row = new int[venueCount]; // the arrivals from v
+			Arrays.fill(row, Integer.MAX_VALUE);
+			row[v] = 0;
+			earliest[state][v] = row;
+			return;
+		}
+		// arrivals from staying at v until the next state
+		int[] row = earliest[state + 1][v];
+		BitSet services = timetable.departuresAt(state)[v]; // departures
+		if (services != null) {
+			row = row.clone();
+			// the session that the services arrive in time for
+			int arrival = timetable.departureSession(state) + 1;
+			for (int w = services.nextSetBit(0); w >= 0; w =
+					services.nextSetBit(w + 1)) {
+				int[] next = earliest[state + 1][w]; // arrivals from w
+				for (int x = 0; x < venueCount; x++) {
+					row[x] = Math.min(row[x], Math.max(next[x], arrival));
+				}
+			}
+		}
+		earliest[state][v] = row;
+	}
+
+	/**
+	 * @require sourceVenue != null && destinationVenue != null &&
+	 *          sourceSession>0 && destinationSession >0
+	 * @ensure Returns true if it is possible to be at the source venue for the
+	 *         duration of the source session, and then, using the available
+	 *         shuttle services (if necessary) to get there, be at the
+	 *         destination venue in time for the given destination session.
+	 **/
+	public boolean canReach(Venue sourceVenue, int sourceSession,
+			Venue destinationVenue, int destinationSession) {
+		if (destinationSession < sourceSession) {
+			return false;
+		}
+		if (destinationSession == sourceSession
+				|| sourceVenue.equals(destinationVenue)) {
+			return sourceVenue.equals(destinationVenue);
+		}
+		int source = timetable.venueId(sourceVenue); // id of the source
+		int destination = timetable.venueId(destinationVenue); // its id
+		if (source < 0 || destination < 0) {
+			return false;
+		}
+		// the state of the source
+		int from = timetable.firstDeparture(sourceSession);
+		return earliest[from][source][destination] <= destinationSession;
+	}
+
+	/**
+	 * Returns the number of venues that services depart from or arrive at.
+	 *
+	 * @return the number of venues distinguished by the closure
+	 */
+	public int getVenueCount() {
+		return venueCount;
+	}
+
+	/**
+	 * Returns one more than the last session that a service departs after
+	 * (the closure treats every later session as equal to this one).
+	 *
+	 * @return the last session distinguished by the closure
+	 */
+	public int getSessionCount() {
+		return timetable.lastSession() + 1;
+	}
+
+	/**
+	 * Returns the number of bytes used by the arrival sessions of the closure
+	 * (counting each shared row once).
+	 *
+	 * @return the size of the stored arrival sessions in bytes
+	 */
+	public long getMemoryUsage() {
+		long entries = 0; // the number of arrival sessions stored
+		for (int i = 0; i < stateCount; i++) {
+			for (int v = 0; v < venueCount; v++) {
+				if (i == stateCount - 1
+						|| earliest[i][v] != earliest[i + 1][v]) {
+					entries += earliest[i][v].length;
+				}
+			}
+		}
+		return 4 * entries;
+	}
+
+}
@@ -156,7 +156,8 @@ public class ScheduleReader {
 		try {
 			lineScanner = new Scanner(line);
 			if (lineScanner.hasNext()) {
-				Venue source = new Venue(lineScanner.next()); // source venue
+				// source venue
+				Venue source = VenueRegistry.intern(lineScanner.next());
 				if (venues.contains(source)) {
 					throw new FormatException("Line " + lineNumber
 							+ ": duplicate source venue");
@@ -205,7 +206,7 @@ public class ScheduleReader {
 			readSessionNumber(lineScanner, lineNumber, session);
 			// create and add a service for each destination venue
 			while (lineScanner.hasNext()) {
-				Venue destination = new Venue(lineScanner.next());
+				Venue destination = VenueRegistry.intern(lineScanner.next());
 				addService(lineNumber, timetable, source, destination, session);
 			}
 		} finally {
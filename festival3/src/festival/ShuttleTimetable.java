@@ -1,6 +1,7 @@
 package festival;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * <p>
@@ -17,9 +18,20 @@ public class ShuttleTimetable implements Iterable<Service> {
 
 	// the services in the shuttle timetable
 	private Set<Service> services;
+	// the destinations of the services departing each source venue, keyed by
+	// the session that they depart at the end of
+	private Map<Venue, Map<Integer, Set<Venue>>> departures;
+	// the number of changes that have been made to the timetable
+	private long version;
+	// the listeners to tell about changes to the timetable
+	private List<TimetableListener> listeners;
 
 	/*
-	 * Invariant: services != null
+	 * Invariant: services != null && departures != null && departures maps
+	 * each source venue of a service in services to a non-empty map from the
+	 * sessions of the services departing that venue to the non-empty set of
+	 * destinations of those services, and has no other entries && version >=
+	 * 0 && listeners != null && !listeners.contains(null)
 	 */
 
 	/**
@@ -27,6 +39,9 @@ public class ShuttleTimetable implements Iterable<Service> {
 	 **/
 	public ShuttleTimetable() {
 		services = new HashSet<>();
+		departures = new HashMap<>();
+		version = 0;
+		listeners = new CopyOnWriteArrayList<>();
 	}
 
 	/**
@@ -47,8 +62,12 @@ public class ShuttleTimetable implements Iterable<Service> {
 		if (service == null) {
 			throw new NullPointerException("Service cannot be null");
 		}
-		if (!services.contains(service)) {
-			services.add(service);
+		if (services.add(service)) {
+			index(service);
+			version++;
+			for (TimetableListener listener : listeners) {
+				listener.serviceAdded(service);
+			}
 		}
 	}
 
@@ -61,7 +80,63 @@ public class ShuttleTimetable implements Iterable<Service> {
 	 *            the service to be removed from the timetable.
 	 */
 	public void removeService(Service service) {
-		services.remove(service);
+		if (services.remove(service)) {
+			removed(service);
+		}
+	}
+
+	/**
+	 * @require service != null && service has just been removed from services
+	 * @ensure Removes the service from the departures index, records the
+	 *         change and tells the listeners about it.
+	 */
+	private void removed(Service service) {
+		unindex(service);
+		version++;
+		for (TimetableListener listener : listeners) {
+			listener.serviceRemoved(service);
+		}
+	}
+
+	/**
+	 * @require service != null && service is in services and not yet indexed
+	 * @ensure Adds the service to the departures index.
+	 */
+	private void index(Service service) {
+		// the services departing the source venue, by session
+		Map<Integer, Set<Venue>> fromSource =
+				departures.get(service.getSource());
+		if (fromSource == null) {
+			fromSource = new HashMap<>();
+			departures.put(service.getSource(), fromSource);
+		}
+		// the destinations of services departing in the session
+		Set<Venue> destinations = fromSource.get(service.getSession());
+		if (destinations == null) {
+			destinations = new HashSet<>();
+			fromSource.put(service.getSession(), destinations);
+		}
+		destinations.add(service.getDestination());
+	}
+
+	/**
+	 * @require service != null && service has been removed from services and
+	 *          is indexed
+	 * @ensure Removes the service from the departures index.
+	 */
+	private void unindex(Service service) {
+		// the services departing the source venue, by session
+		Map<Integer, Set<Venue>> fromSource =
+				departures.get(service.getSource());
+		// the destinations of services departing in the session
+		Set<Venue> destinations = fromSource.get(service.getSession());
+		destinations.remove(service.getDestination());
+		if (destinations.isEmpty()) {
+			fromSource.remove(service.getSession());
+			if (fromSource.isEmpty()) {
+				departures.remove(service.getSource());
+			}
+		}
 	}
 
 	/**
@@ -77,6 +152,45 @@ public class ShuttleTimetable implements Iterable<Service> {
 		return services.contains(service);
 	}
 
+	/**
+	 * Returns the version of the timetable: a number that starts at 0 and
+	 * increases by one every time a service is added to or removed from the
+	 * timetable. (Adding a service that is already in the timetable, or
+	 * removing one that is not, does not change the version.)
+	 * 
+	 * @return the number of changes made to the timetable
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Registers a listener that will be told about every service added to or
+	 * removed from the timetable from now on (after each change is made).
+	 * 
+	 * @param listener
+	 *            the listener to register
+	 * @throws NullPointerException
+	 *             if listener is null
+	 */
+	public void addListener(TimetableListener listener) {
+		if (listener == null) {
+			throw new NullPointerException("Listener cannot be null");
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Stops telling the given listener about changes to the timetable. If the
+	 * listener is not registered, then this method does nothing.
+	 * 
+	 * @param listener
+	 *            the listener to deregister
+	 */
+	public void removeListener(TimetableListener listener) {
+		listeners.remove(listener);
+	}
+
 	/**
 	 * Returns the number of services in the shuttle timetable.
 	 */
@@ -108,14 +222,31 @@ public class ShuttleTimetable implements Iterable<Service> {
 			throw new InvalidSessionException("Session number " + session
 					+ " must be positive");
 		}
-		// venues reachable from source at end of the session
-		Set<Venue> destinations = new HashSet<>();
-		for (Service s : services) {
-			if (s.getSource().equals(source) && s.getSession() == session) {
-				destinations.add(s.getDestination());
-			}
+		return new HashSet<>(departures(source, session));
+	}
+
+	/**
+	 * Returns a read-only view of the venues that can be reached by a service
+	 * departing the source venue at the end of the given session. (Unlike
+	 * getDestinations, the set is not copied, so it must not be used after the
+	 * timetable is modified.)
+	 * 
+	 * @require source != null && session > 0
+	 * @ensure Returns the destinations of the services departing source at the
+	 *         end of session.
+	 */
+	Set<Venue> departures(Venue source, int session) {
+		// the services departing the source venue, by session
+		Map<Integer, Set<Venue>> fromSource = departures.get(source);
+		if (fromSource == null) {
+			return Collections.emptySet();
+		}
+		// the destinations of services departing in the session
+		Set<Venue> destinations = fromSource.get(session);
+		if (destinations == null) {
+			return Collections.emptySet();
 		}
-		return destinations;
+		return Collections.unmodifiableSet(destinations);
 	}
 
 	/**
@@ -123,7 +254,29 @@ public class ShuttleTimetable implements Iterable<Service> {
 	 */
 	@Override
 	public Iterator<Service> iterator() {
-		return services.iterator();
+		// the underlying iterator over the services
+		final Iterator<Service> iterator = services.iterator();
+		return new Iterator<Service>() {
+			// the service most recently returned by next()
+			private Service current;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Service next() {
+				current = iterator.next();
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				removed(current);
+			}
+		};
 	}
 
 	/**
@@ -143,7 +296,17 @@ public class ShuttleTimetable implements Iterable<Service> {
 	 *         otherwise.
 	 */
 	public boolean checkInvariant() {
-		return services != null;
+		if (services == null || departures == null || version < 0
+				|| listeners == null || listeners.contains(null)) {
+			return false;
+		}
+		int indexed = 0; // the number of services in the departures index
+		for (Map<Integer, Set<Venue>> fromSource : departures.values()) {
+			for (Set<Venue> destinations : fromSource.values()) {
+				indexed += destinations.size();
+			}
+		}
+		return indexed == services.size();
 	}
 
 }
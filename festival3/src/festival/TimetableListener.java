@@ -0,0 +1,25 @@
+package festival;
+
+/**
+ * A listener that is told about each change made to a shuttle timetable (e.g.
+ * so that results derived from the timetable can be updated or discarded).
+ */
+public interface TimetableListener {
+
+	/**
+	 * Called after the given service has been added to the timetable.
+	 * 
+	 * @param service
+	 *            the service that was added
+	 */
+	void serviceAdded(Service service);
+
+	/**
+	 * Called after the given service has been removed from the timetable.
+	 * 
+	 * @param service
+	 *            the service that was removed
+	 */
+	void serviceRemoved(Service service);
+
+}
@@ -5,8 +5,13 @@ public class Venue {
 
 	// the name of the venue
 	private String name;
+	// the hash code of the venue (cached from its name)
+	private int hash;
+	// the id given to the venue by VenueRegistry, or -1 if it was not
+	// created by the registry
+	private int id;
 
-	/* invariant: name != null */
+	/* invariant: name != null && hash == name.hashCode() && id >= -1 */
 
 	/**
 	 * Creates a new venue with the given name.
@@ -17,10 +22,27 @@ public class Venue {
 	 *             if the given name is null
 	 */
 	public Venue(String name) {
+		this(name, -1);
+	}
+
+	/**
+	 * Creates a new venue with the given name and registry id. (Only
+	 * VenueRegistry should create venues with an id other than -1.)
+	 * 
+	 * @param name
+	 *            the name of the venue
+	 * @param id
+	 *            the id of the venue in the VenueRegistry, or -1
+	 * @throws NullPointerException
+	 *             if the given name is null
+	 */
+	Venue(String name, int id) {
 		if (name == null) {
 			throw new NullPointerException("Venue names cannot be null");
 		}
 		this.name = name;
+		this.hash = name.hashCode();
+		this.id = id;
 	}
 
 	/**
@@ -32,21 +54,40 @@ public class Venue {
 		return name;
 	}
 
+	/**
+	 * Returns the id given to the venue by VenueRegistry, or -1 if the venue
+	 * was not created by the registry.
+	 * 
+	 * @return the registry id of this venue, or -1
+	 */
+	int getId() {
+		return id;
+	}
+
 	/**
 	 * Two venues are considered equal if their names are equivalent.
+	 * 
+	 * (Venues created by the VenueRegistry have unique names, so two of them
+	 * are equal only if they are the same object.)
 	 */
 	@Override
 	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
 		if (!(object instanceof Venue)) {
 			return false;
 		}
 		Venue venue = (Venue) object; // venue to compare
-		return this.name.equals(venue.name);
+		if (this.id >= 0 && venue.id >= 0) {
+			return false;
+		}
+		return this.hash == venue.hash && this.name.equals(venue.name);
 	}
 
 	@Override
 	public int hashCode() {
-		return name.hashCode();
+		return hash;
 	}
 
 	@Override
@@ -61,7 +102,7 @@ public class Venue {
 	 * @return true if this Venue is internally consistent, and false otherwise.
 	 */
 	public boolean checkInv() {
-		return name != null;
+		return name != null && hash == name.hashCode() && id >= -1;
 	}
 
 }
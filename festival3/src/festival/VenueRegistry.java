@@ -0,0 +1,160 @@
+package festival;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * A registry that interns the venues of a festival, so that each venue name is
+ * represented by a single Venue object.
+ * </p>
+ * 
+ * <p>
+ * Each venue created by the registry is given a small, stable integer id: the
+ * ids are allocated consecutively from 0 in the order that the venues are
+ * first interned. Interned venues with different names are never equal, so
+ * comparing two interned venues is an identity check.
+ * </p>
+ * 
+ * <p>
+ * The registry is shared by the whole program (e.g. by LineUpReader and
+ * ScheduleReader), it is safe to use from multiple threads, and venues are
+ * never removed from it.
+ * </p>
+ */
+public final class VenueRegistry {
+
+	// the interned venue for each venue name
+	private static final Map<String, Venue> venues =
+			new ConcurrentHashMap<>();
+	// the interned venue for each id (guarded by the class lock)
+	private static Venue[] byId = new Venue[16];
+	// the number of venues that have been interned (guarded by the class lock)
+	private static int size = 0;
+
+	/*
+	 * Invariant: venues.size() == size && byId[0..size) are the values of
+	 * venues && byId[i].getId() == i && venues.get(byId[i].getName()) ==
+	 * byId[i] for 0 <= i < size
+	 */
+
+	/**
+	 * This class only has static members, and cannot be instantiated.
+	 */
+	private VenueRegistry() {
+	}
+
+	/**
+	 * Returns the interned venue with the given name, creating (and giving an
+	 * id to) the venue if no venue with that name has been interned before.
+	 * 
+	 * @param name
+	 *            the name of the venue
+	 * @return the interned venue with the given name
+	 * @throws NullPointerException
+	 *             if name is null
+	 */
+	public static Venue intern(String name) {
+		if (name == null) {
+			throw new NullPointerException("Venue names cannot be null");
+		}
+		Venue venue = venues.get(name); // the interned venue
+		if (venue != null) {
+			return venue;
+		}
+		synchronized (VenueRegistry.class) {
+			venue = venues.get(name);
+			if (venue == null) {
+				venue = new Venue(name, size);
+				if (size == byId.length) {
+					byId = Arrays.copyOf(byId, 2 * size);
+				}
+				byId[size++] = venue;
+				venues.put(name, venue);
+			}
+			return venue;
+		}
+	}
+
+	/**
+	 * Returns the interned venue that is equal to the given venue.
+	 * 
+	 * @param venue
+	 *            the venue to intern
+	 * @return the interned venue with the same name as the given venue
+	 * @throws NullPointerException
+	 *             if venue is null
+	 */
+	public static Venue intern(Venue venue) {
+		if (venue == null) {
+			throw new NullPointerException("Cannot intern a null venue");
+		}
+		if (venue.getId() >= 0) {
+			return venue;
+		}
+		return intern(venue.getName());
+	}
+
+	/**
+	 * Returns the id of the interned venue that is equal to the given venue
+	 * (interning the venue first if necessary).
+	 * 
+	 * @param venue
+	 *            the venue to look up
+	 * @return the id of the venue, where 0 <= id < size()
+	 * @throws NullPointerException
+	 *             if venue is null
+	 */
+	public static int getId(Venue venue) {
+		return intern(venue).getId();
+	}
+
+	/**
+	 * Returns the id of the interned venue that is equal to the given venue,
+	 * or -1 if no venue with its name has been interned. Unlike getId, this
+	 * never adds a venue to the registry, so it suits read-only lookups.
+	 * 
+	 * @param venue
+	 *            the venue to look up
+	 * @return the id of the venue, or -1 if it has not been interned
+	 * @throws NullPointerException
+	 *             if venue is null
+	 */
+	public static int find(Venue venue) {
+		if (venue == null) {
+			throw new NullPointerException("Cannot find a null venue");
+		}
+		if (venue.getId() >= 0) {
+			return venue.getId();
+		}
+		Venue interned = venues.get(venue.getName()); // the interned venue
+		return interned == null ? -1 : interned.getId();
+	}
+
+	/**
+	 * Returns the interned venue with the given id.
+	 * 
+	 * @param id
+	 *            the id of the venue
+	 * @return the interned venue with the given id
+	 * @throws IndexOutOfBoundsException
+	 *             if id < 0 or id >= size()
+	 */
+	public static synchronized Venue getVenue(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No venue with id " + id);
+		}
+		return byId[id];
+	}
+
+	/**
+	 * Returns the number of venues that have been interned (which is one more
+	 * than the largest id given to a venue).
+	 * 
+	 * @return the number of interned venues
+	 */
+	public static synchronized int size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,127 @@
+package festival.benchmark;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import festival.BatchReport;
+import festival.CompatibilityCache;
+import festival.DayPlanner;
+import festival.Event;
+import festival.LineUp;
+import festival.ShuttleTimetable;
+
+/**
+ * Measures the throughput of checking a large batch of plans for
+ * compatibility, one call at a time and with DayPlanner.compatibleAll, with
+ * and without the reachability closure, and through a CompatibilityCache
+ * when most checks are of a few popular plans.
+ */
+public class CompatibilityBenchmark {
+
+	// the number of venues and sessions of the line-up and timetable
+	private static final int SIZE = 100;
+	// the number of plans in the batch
+	private static final int PLANS = 1000000;
+	// the largest number of events in a plan
+	private static final int PLAN_SIZE = 8;
+	// the number of popular plans that most checks of the cached batch are of
+	private static final int POPULAR = 1000;
+
+	/**
+	 * Checks a batch of random plans one at a time, and with compatibleAll on
+	 * a single-threaded pool and on the common pool, before and after
+	 * compiling the reachability closure, and prints the throughput of each.
+	 * Then checks a batch that is mostly popular plans, through caches of
+	 * increasing capacity.
+	 */
+	public static void main(String[] args) {
+		ShuttleTimetable timetable = ReachabilityBenchmark.randomTimetable(
+				SIZE, SIZE, 0.02);
+		List<List<Event>> plans = randomPlans(PlanBenchmark.randomLineUp(SIZE,
+				SIZE));
+		DayPlanner planner = new DayPlanner(timetable);
+		ForkJoinPool single = new ForkJoinPool(1); // a single-threaded pool
+		System.out.println("closure\tone at a time (plans/s)"
+				+ "\tcompatibleAll, 1 thread (plans/s)"
+				+ "\tcompatibleAll, common pool (plans/s)\tcompatible plans");
+		for (boolean closure : new boolean[] { false, true }) {
+			if (closure) {
+				planner.compileReachability();
+			}
+			long start = System.nanoTime();
+			int count = 0; // the number of compatible plans
+			for (List<Event> plan : plans) {
+				if (planner.compatible(plan)) {
+					count++;
+				}
+			}
+			double sequential = plans.size() * 1e9
+					/ (System.nanoTime() - start);
+			BatchReport one = planner.compatibleAll(plans.stream(), single);
+			BatchReport common = planner.compatibleAll(plans.stream());
+			if (one.getCompatibleCount() != count
+					|| common.getCompatibleCount() != count) {
+				throw new AssertionError("batches disagree");
+			}
+			System.out.printf("%s\t%.0f\t%.0f\t%.0f\t%d%n", closure ? "yes"
+					: "no", sequential, one.getThroughput(),
+					common.getThroughput(), count);
+		}
+		single.shutdown();
+
+		// most checks are of a few popular plans
+		Random random = new Random(5); // source of the skewed workload
+		List<List<Event>> workload = new ArrayList<>();
+		for (int i = 0; i < PLANS; i++) {
+			workload.add(plans.get(random.nextInt(5) > 0 ? random
+					.nextInt(POPULAR) : random.nextInt(plans.size())));
+		}
+		planner = new DayPlanner(timetable); // without the closure
+		long start = System.nanoTime();
+		for (List<Event> plan : workload) {
+			planner.compatible(plan);
+		}
+		System.out.println();
+		System.out.printf("uncached: %.0f plans/s%n", workload.size() * 1e9
+				/ (System.nanoTime() - start));
+		System.out.println("capacity\thit rate\tcached (plans/s)");
+		for (int capacity = 1000; capacity <= 100000; capacity *= 10) {
+			CompatibilityCache cache = new CompatibilityCache(timetable,
+					capacity);
+			start = System.nanoTime();
+			for (List<Event> plan : workload) {
+				cache.compatible(plan);
+			}
+			System.out.printf("%d\t%.3f\t%.0f%n", capacity, cache
+					.getHitRate(), workload.size() * 1e9
+					/ (System.nanoTime() - start));
+		}
+	}
+
+	/**
+	 * @require lineUp != null && every session from 1 to SIZE has an event
+	 * @ensure Returns PLANS random plans of events from the line-up, each
+	 *         ordered by session, with between 1 and PLAN_SIZE events in
+	 *         different sessions.
+	 */
+	private static List<List<Event>> randomPlans(LineUp lineUp) {
+		Random random = new Random(4); // source of the random plans
+		List<List<Event>> plans = new ArrayList<>();
+		for (int i = 0; i < PLANS; i++) {
+			// the sessions of the plan, in order
+			SortedSet<Integer> sessions = new TreeSet<>();
+			int size = 1 + random.nextInt(PLAN_SIZE); // the size of the plan
+			while (sessions.size() < size) {
+				sessions.add(1 + random.nextInt(SIZE));
+			}
+			List<Event> plan = new ArrayList<>();
+			for (int session : sessions) {
+				List<Event> events = lineUp.getEvents(session); // choices
+				plan.add(events.get(random.nextInt(events.size())));
+			}
+			plans.add(plan);
+		}
+		return plans;
+	}
+
+}
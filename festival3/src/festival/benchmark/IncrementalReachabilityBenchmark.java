@@ -0,0 +1,168 @@
+package festival.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import festival.CompiledTimetable;
+import festival.IncrementalReachability;
+import festival.ReachabilityClosure;
+import festival.Service;
+import festival.ShuttleTimetable;
+import festival.Venue;
+
+/**
+ * Measures the time taken to keep a reachability closure up to date as
+ * services are added to and removed from a timetable, compared with
+ * rebuilding the closure from scratch after every change.
+ */
+public class IncrementalReachabilityBenchmark {
+
+	// the number of services added (and then removed) for each timetable
+	private static final int UPDATES = 200;
+	// the number of times the full rebuild is repeated (the best is reported)
+	private static final int REPETITIONS = 5;
+	// the largest number of venues (and sessions) for which the updates are
+	// checked against a rebuild (each check compares every pair of states)
+	private static final int VERIFIED_SIZE = 50;
+
+	/**
+	 * For random timetables of increasing size, adds and then removes random
+	 * services with an incremental closure attached, and prints the average
+	 * time per update next to the time taken by a full rebuild. For the
+	 * timetables of up to VERIFIED_SIZE venues, the updates are then replayed
+	 * (untimed), checking the incremental closure against a rebuild after
+	 * each one.
+	 */
+	public static void main(String[] args) {
+		System.out.println("venues\tsessions\tservices\tfull rebuild (ms)"
+				+ "\tincremental add (ms)\tincremental remove (ms)");
+		ForkJoinPool single = new ForkJoinPool(1); // a single-threaded pool
+		for (int size = 25; size <= 150; size *= 2) {
+			ShuttleTimetable timetable = ReachabilityBenchmark
+					.randomTimetable(size, size, 0.02);
+
+			long rebuild = Long.MAX_VALUE; // best time to rebuild the closure
+			for (int i = 0; i < REPETITIONS; i++) {
+				long start = System.nanoTime();
+				new CompiledTimetable(timetable).compileReachability(single);
+				rebuild = Math.min(rebuild, System.nanoTime() - start);
+			}
+
+			IncrementalReachability closure = new IncrementalReachability(
+					timetable);
+			Service[] updates = randomServices(timetable, size, size);
+			long start = System.nanoTime();
+			for (Service service : updates) {
+				timetable.addService(service);
+			}
+			long add = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (Service service : updates) {
+				timetable.removeService(service);
+			}
+			long remove = System.nanoTime() - start;
+			if (size <= VERIFIED_SIZE) {
+				verify(timetable, closure, updates, size, single);
+			}
+			closure.close();
+
+			System.out.printf("%d\t%d\t%d\t%.2f\t%.3f\t%.3f%n", size, size,
+					timetable.size(), rebuild / 1e6, add / 1e6 / UPDATES,
+					remove / 1e6 / UPDATES);
+		}
+		single.shutdown();
+	}
+
+	/**
+	 * @require closure is attached to timetable && updates are not in
+	 *          timetable && the venues of timetable and updates are named
+	 *          "v0", "v1", ..., up to the given number of venues && pool !=
+	 *          null
+	 * @ensure Adds and then removes each of the updates, and after each change
+	 *         checks that the closure agrees with a closure compiled from
+	 *         scratch for every pair of (venue, session) states, throwing an
+	 *         AssertionError if they disagree. The timetable is left as it
+	 *         was.
+	 */
+	private static void verify(ShuttleTimetable timetable,
+			IncrementalReachability closure, Service[] updates, int venues,
+			ForkJoinPool pool) {
+		for (Service service : updates) {
+			timetable.addService(service);
+			check(timetable, closure, venues, "adding " + service, pool);
+		}
+		for (Service service : updates) {
+			timetable.removeService(service);
+			check(timetable, closure, venues, "removing " + service, pool);
+		}
+	}
+
+	/**
+	 * @require closure is attached to timetable && the venues of timetable
+	 *          are named "v0", "v1", ..., up to the given number of venues &&
+	 *          change != null && pool != null
+	 * @ensure Throws an AssertionError (naming the change just made) unless
+	 *         the closure agrees with a closure compiled from scratch for
+	 *         every pair of (venue, session) states, up to the session after
+	 *         the last service.
+	 */
+	private static void check(ShuttleTimetable timetable,
+			IncrementalReachability closure, int venues, String change,
+			ForkJoinPool pool) {
+		ReachabilityClosure expected = new CompiledTimetable(timetable)
+				.compileReachability(pool); // the closure to check against
+		int sessions = expected.getSessionCount(); // the sessions to check
+		Venue[] names = new Venue[venues]; // the venues to check
+		for (int v = 0; v < venues; v++) {
+			names[v] = new Venue("v" + v);
+		}
+		for (Venue source : names) {
+			for (int s = 1; s <= sessions; s++) {
+				for (Venue destination : names) {
+					for (int t = s; t <= sessions; t++) {
+						// the answer of the incremental closure
+						boolean actual = closure.canReach(source, s,
+								destination, t);
+						if (actual != expected.canReach(source, s,
+								destination, t)) {
+							throw new AssertionError("closures disagree after "
+									+ change + " from " + source + " " + s
+									+ " to " + destination + " " + t);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @require timetable != null && venues > 1 && sessions > 0
+	 * @ensure Returns UPDATES distinct random services between the venues
+	 *         "v0", "v1", ... that are not in the timetable, departing after
+	 *         sessions no later than the given number of sessions.
+	 */
+	private static Service[] randomServices(ShuttleTimetable timetable,
+			int venues, int sessions) {
+		Random random = new Random(2); // source of the random services
+		Service[] services = new Service[UPDATES];
+		int count = 0; // the number of services chosen so far
+		while (count < UPDATES) {
+			int a = random.nextInt(venues); // the source of the service
+			int b = random.nextInt(venues); // its destination
+			if (a == b) {
+				continue;
+			}
+			Service service = new Service(new Venue("v" + a),
+					new Venue("v" + b), 1 + random.nextInt(sessions));
+			boolean duplicate = timetable.hasService(service);
+			for (int i = 0; i < count && !duplicate; i++) {
+				duplicate = services[i].equals(service);
+			}
+			if (!duplicate) {
+				services[count++] = service;
+			}
+		}
+		return services;
+	}
+
+}
@@ -0,0 +1,135 @@
+package festival.benchmark;
+
+import java.io.*;
+import java.util.Arrays;
+
+import festival.AbstractLineUp;
+import festival.Event;
+import festival.FormatException;
+import festival.GridLineUp;
+import festival.LineUp;
+import festival.LineUpReader;
+import festival.Venue;
+
+/**
+ * Measures how the time taken to load a line-up scales with the number of
+ * events in the line-up.
+ */
+public class LineUpBenchmark {
+
+	// the number of venues used by the generated line-ups
+	private static final int VENUES = 100;
+	// the number of times each measurement is repeated (the best is reported)
+	private static final int REPETITIONS = 5;
+
+	/**
+	 * Loads line-ups of increasing size, both directly through
+	 * LineUp.addEvent (and GridLineUp.addEvent) and from a file through
+	 * LineUpReader.read, and prints the best time taken for each size. Then
+	 * prints the time taken by per-venue and per-session queries on each
+	 * representation.
+	 */
+	public static void main(String[] args) throws IOException,
+			FormatException {
+		System.out.println("events\taddEvent (ms)\tgrid addEvent (ms)"
+				+ "\tLineUpReader.read (ms)");
+		for (int size = 1000; size <= 128000; size *= 2) {
+			Event[] events = generateEvents(size);
+			File file = writeLineUp(events);
+			try {
+				long add = Long.MAX_VALUE; // best time to add events
+				long grid = Long.MAX_VALUE; // best time to add to a grid
+				long read = Long.MAX_VALUE; // best time to read the file
+				for (int i = 0; i < REPETITIONS; i++) {
+					add = Math.min(add, timeAdd(new LineUp(), events));
+					grid = Math.min(grid, timeAdd(new GridLineUp(), events));
+
+					long start = System.nanoTime();
+					LineUpReader.read(file.getPath());
+					read = Math.min(read, System.nanoTime() - start);
+				}
+				System.out.printf("%d\t%.2f\t%.2f\t%.2f%n", size, add / 1e6,
+						grid / 1e6, read / 1e6);
+			} finally {
+				file.delete();
+			}
+		}
+
+		Event[] events = generateEvents(128000);
+		System.out.println();
+		System.out.println("line-up\tgetEvents(Venue) (ms)"
+				+ "\tgetEvents(int) (ms)");
+		for (AbstractLineUp lineUp : new AbstractLineUp[] { new LineUp(),
+				new GridLineUp() }) {
+			lineUp.addAll(Arrays.asList(events));
+			long byVenue = Long.MAX_VALUE; // best time for venue queries
+			long bySession = Long.MAX_VALUE; // best time for session queries
+			for (int i = 0; i < REPETITIONS; i++) {
+				long start = System.nanoTime();
+				for (Venue venue : lineUp.getVenues()) {
+					lineUp.getEvents(venue);
+				}
+				byVenue = Math.min(byVenue, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				for (int session = lineUp.getFirstUsedSession(); session <= lineUp
+						.getLastUsedSession(); session++) {
+					lineUp.getEvents(session);
+				}
+				bySession = Math.min(bySession, System.nanoTime() - start);
+			}
+			System.out.printf("%s\t%.2f\t%.2f%n", lineUp.getClass()
+					.getSimpleName(), byVenue / 1e6, bySession / 1e6);
+		}
+	}
+
+	/**
+	 * @require lineUp != null && events can all be added to lineUp
+	 * @ensure Adds the events to lineUp one at a time, and returns the time
+	 *         taken in nanoseconds.
+	 */
+	private static long timeAdd(AbstractLineUp lineUp, Event[] events) {
+		long start = System.nanoTime();
+		for (Event event : events) {
+			lineUp.addEvent(event);
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * @require size >= 0
+	 * @ensure Returns size events that can all be added to the same line-up,
+	 *         spread over VENUES venues.
+	 */
+	static Event[] generateEvents(int size) {
+		Venue[] venues = new Venue[VENUES]; // the venues of the events
+		for (int v = 0; v < VENUES; v++) {
+			venues[v] = new Venue("v" + v);
+		}
+		Event[] events = new Event[size]; // the generated events
+		for (int i = 0; i < size; i++) {
+			events[i] =
+					new Event(venues[i % VENUES], i / VENUES + 1, "act " + i);
+		}
+		return events;
+	}
+
+	/**
+	 * @require events != null && !events.contains(null)
+	 * @ensure Writes the events, one per line, to a new temporary file and
+	 *         returns the file.
+	 */
+	private static File writeLineUp(Event[] events) throws IOException {
+		File file = File.createTempFile("lineUp", ".txt");
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			for (Event event : events) {
+				out.println(event);
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+}
@@ -0,0 +1,126 @@
+package festival.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import festival.DayPlanner;
+import festival.Event;
+import festival.LineUp;
+import festival.ShuttleTimetable;
+import festival.Venue;
+
+/**
+ * Measures the time taken by DayPlanner to find the best plans for synthetic
+ * line-ups and shuttle timetables with hundreds of venues and sessions.
+ */
+public class PlanBenchmark {
+
+	// the probability that a venue holds an event during a session
+	private static final double EVENT_DENSITY = 0.3;
+	// the average number of services departing each venue after each session
+	private static final double DEPARTURES = 2.0;
+	// the number of times each measurement is repeated (the best is reported)
+	private static final int REPETITIONS = 5;
+	// the number of plans found by topPlans
+	private static final int TOP = 10;
+
+	/**
+	 * For line-ups and timetables of increasing size, finds the largest
+	 * compatible plan, the best rated one and the TOP best rated ones, and
+	 * prints the best time taken for each size. Then does the same for a fixed
+	 * number of venues and an increasing number of sessions.
+	 */
+	public static void main(String[] args) {
+		System.out.println("venues\tsessions\tevents\tservices"
+				+ "\tplan size\tlargestPlan (ms)\tbestPlan (ms)"
+				+ "\ttopPlans (ms)");
+		for (int size = 50; size <= 400; size *= 2) {
+			run(size, size);
+		}
+		System.out.println();
+		for (int sessions = 100; sessions <= 1600; sessions *= 2) {
+			run(100, sessions);
+		}
+	}
+
+	/**
+	 * @require venues > 0 && sessions > 0
+	 * @ensure Times largestPlan, bestPlan and topPlans for a random line-up and
+	 *         timetable of the given size, and prints the results.
+	 */
+	private static void run(int venues, int sessions) {
+		ShuttleTimetable timetable = ReachabilityBenchmark.randomTimetable(
+				venues, sessions, DEPARTURES / venues);
+		LineUp lineUp = randomLineUp(venues, sessions);
+		Map<String, Double> ratings = randomRatings(lineUp);
+		DayPlanner planner = new DayPlanner(timetable);
+
+		long largest = Long.MAX_VALUE; // best time to find the largest plan
+		long best = Long.MAX_VALUE; // best time to find the best rated plan
+		long top = Long.MAX_VALUE; // best time to find the TOP best plans
+		int planSize = 0; // the size of the largest plan
+		for (int i = 0; i < REPETITIONS; i++) {
+			long start = System.nanoTime();
+			planSize = planner.largestPlan(lineUp).size();
+			largest = Math.min(largest, System.nanoTime() - start);
+			start = System.nanoTime();
+			planner.bestPlan(lineUp, ratings);
+			best = Math.min(best, System.nanoTime() - start);
+			start = System.nanoTime();
+			planner.topPlans(lineUp, ratings, TOP);
+			top = Math.min(top, System.nanoTime() - start);
+		}
+		System.out.printf("%d\t%d\t%d\t%d\t%d\t%.2f\t%.2f\t%.2f%n",
+				venues, sessions, count(lineUp), timetable.size(), planSize,
+				largest / 1e6, best / 1e6, top / 1e6);
+	}
+
+	/**
+	 * @require lineUp != null
+	 * @ensure Returns a random rating between 0 and 10 for the act of each
+	 *         event in the line-up.
+	 */
+	static Map<String, Double> randomRatings(LineUp lineUp) {
+		Random random = new Random(3); // source of the random ratings
+		Map<String, Double> ratings = new HashMap<>();
+		for (Event event : lineUp) {
+			ratings.put(event.getAct(), 10 * random.nextDouble());
+		}
+		return ratings;
+	}
+
+	/**
+	 * @require venues > 0 && sessions > 0
+	 * @ensure Returns a line-up over the venues "v0", "v1", ... in which each
+	 *         venue holds an event during each session with probability
+	 *         EVENT_DENSITY. (The act of each event is unique.)
+	 */
+	static LineUp randomLineUp(int venues, int sessions) {
+		Random random = new Random(sessions); // source of the random events
+		LineUp lineUp = new LineUp();
+		for (int v = 0; v < venues; v++) {
+			for (int s = 1; s <= sessions; s++) {
+				if (random.nextDouble() < EVENT_DENSITY) {
+					lineUp.addEvent(new Event(new Venue("v" + v), s, "act " + v
+							+ "/" + s));
+				}
+			}
+		}
+		return lineUp;
+	}
+
+	/**
+	 * @require lineUp != null
+	 * @ensure Returns the number of events in the line-up.
+	 */
+	private static int count(LineUp lineUp) {
+		int count = 0; // the number of events counted so far
+		for (int s = lineUp.getFirstUsedSession(); s > 0
+				&& s <= lineUp.getLastUsedSession(); s++) {
+			count += lineUp.getEvents(s).size();
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,276 @@
+package festival.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import festival.CompiledTimetable;
+import festival.DayPlanner;
+import festival.Event;
+import festival.ReachabilityCache;
+import festival.ReachabilityClosure;
+import festival.Service;
+import festival.ShuttleTimetable;
+import festival.Venue;
+import festival.VenueRegistry;
+
+/**
+ * Measures the time taken by DayPlanner.canReach on synthetic dense shuttle
+ * timetables, compared with the original (unmemoized) recursive search; the
+ * cost and benefit of precomputing the reachability closure; the time taken
+ * to find itineraries; and the benefit of caching repeated queries.
+ */
+public class ReachabilityBenchmark {
+
+	// the time (in nanoseconds) after which the original search is no longer
+	// run for larger timetables
+	private static final long NAIVE_LIMIT = 2000000000L;
+	// the number of random queries timed for each timetable
+	private static final int QUERIES = 100000;
+	// the number of those queries timed for the itinerary searches
+	private static final int ROUTING_QUERIES = 10000;
+	// the capacity of the reachability cache
+	private static final int CACHE_SIZE = 4096;
+
+	/**
+	 * For timetables of increasing size, times a query that has to explore
+	 * every (venue, session) state, and prints the results. Then times random
+	 * queries against the closure, the itinerary searches and the cache.
+	 */
+	public static void main(String[] args) {
+		System.out.println("venues\tsessions\tservices\tcanReach (ms)"
+				+ "\toriginal search (ms)");
+		boolean runNaive = true; // whether the original search is still run
+		for (int size = 3; size <= 48; size += 3) {
+			ShuttleTimetable timetable = denseTimetable(size, size);
+			DayPlanner planner = new DayPlanner(timetable);
+			// no service arrives at the destination, so every state from the
+			// source is explored before the query fails
+			Event source = new Event(new Venue("v0"), 1, "source");
+			Event destination = new Event(new Venue("sink"), size, "sink");
+
+			long start = System.nanoTime();
+			boolean result = planner.canReach(source, destination);
+			long memoized = System.nanoTime() - start;
+
+			String naive = "-"; // the time taken by the original search
+			if (runNaive) {
+				start = System.nanoTime();
+				if (naiveCanReach(timetable, source.getVenue(), 1,
+						destination.getVenue(), size) != result) {
+					throw new AssertionError("searches disagree");
+				}
+				long time = System.nanoTime() - start;
+				naive = String.format("%.2f", time / 1e6);
+				runNaive = time < NAIVE_LIMIT;
+			}
+			System.out.printf("%d\t%d\t%d\t%.2f\t%s%n", size, size,
+					timetable.size(), memoized / 1e6, naive);
+		}
+
+		System.out.println();
+		System.out.println("venues\tsessions\tservices\tbuild, 1 thread (ms)"
+				+ "\tbuild, common pool (ms)\tclosure (MB)"
+				+ "\tsweep query (us)\tclosure query (us)");
+		ForkJoinPool single = new ForkJoinPool(1); // a single-threaded pool
+		for (int size = 25; size <= 150; size *= 2) {
+			ShuttleTimetable timetable = randomTimetable(size, size, 0.02);
+			DayPlanner sweep = new DayPlanner(timetable);
+			// each build is timed on a fresh snapshot, since a snapshot only
+			// computes its closure once
+			CompiledTimetable snapshot = new CompiledTimetable(timetable);
+			long start = System.nanoTime();
+			snapshot.compileReachability(single);
+			long sequential = System.nanoTime() - start;
+			snapshot = new CompiledTimetable(timetable);
+			start = System.nanoTime();
+			ReachabilityClosure closure = snapshot
+					.compileReachability(ForkJoinPool.commonPool());
+			long parallel = System.nanoTime() - start;
+			long memory = closure.getMemoryUsage();
+			DayPlanner compiled = new DayPlanner(snapshot); // uses closure
+
+			Event[][] queries = randomQueries(size, size);
+			System.out.printf("%d\t%d\t%d\t%.2f\t%.2f\t%.2f\t%.3f\t%.3f%n",
+					size, size, timetable.size(), sequential / 1e6,
+					parallel / 1e6, memory / 1e6, timeQueries(sweep, queries),
+					timeQueries(compiled, queries));
+		}
+		single.shutdown();
+
+		System.out.println();
+		System.out.println("venues\tsessions\tservices"
+				+ "\tearliestArrival (us)\tfewestTransfers (us)");
+		for (int size = 25; size <= 100; size *= 2) {
+			ShuttleTimetable timetable = randomTimetable(size, size, 0.02);
+			DayPlanner planner = new DayPlanner(timetable);
+			Event[][] queries = Arrays.copyOf(randomQueries(size, size),
+					ROUTING_QUERIES);
+			System.out.printf("%d\t%d\t%d\t%.3f\t%.3f%n", size, size,
+					timetable.size(), timeRouting(planner, queries, false),
+					timeRouting(planner, queries, true));
+		}
+
+		System.out.println();
+		System.out.println("venues\tsessions\tservices\tsweep query (us)"
+				+ "\tcached query (us)\tcache hits");
+		for (int size = 25; size <= 100; size *= 2) {
+			ShuttleTimetable timetable = randomTimetable(size, size, 0.02);
+			DayPlanner planner = new DayPlanner(timetable);
+			ReachabilityCache cache = new ReachabilityCache(timetable,
+					CACHE_SIZE);
+			// the same few pairs of events (at interned venues, as read by
+			// LineUpReader) are asked about over and over
+			Event[][] hot = randomQueries(size, size);
+			for (int i = 0; i < CACHE_SIZE / 4; i++) {
+				for (int j = 0; j < 2; j++) {
+					hot[i][j] = new Event(VenueRegistry.intern(hot[i][j]
+							.getVenue()), hot[i][j].getSession(), hot[i][j]
+							.getAct());
+				}
+			}
+			for (int i = 0; i < hot.length; i++) {
+				hot[i] = hot[i % (CACHE_SIZE / 4)];
+			}
+			long start = System.nanoTime();
+			for (Event[] query : hot) {
+				cache.canReach(query[0], query[1]);
+			}
+			double cached = (System.nanoTime() - start) / 1e3 / hot.length;
+			System.out.printf("%d\t%d\t%d\t%.3f\t%.3f\t%d%n", size, size,
+					timetable.size(), timeQueries(planner, hot), cached,
+					cache.getHits());
+			cache.close();
+		}
+	}
+
+	/**
+	 * @require planner != null && queries != null
+	 * @ensure Finds itineraries (the earliest arriving one, or those with the
+	 *         fewest transfers) from the first to the second event of each
+	 *         query, and returns the average time per query in microseconds.
+	 */
+	private static double timeRouting(DayPlanner planner, Event[][] queries,
+			boolean fewestTransfers) {
+		long start = System.nanoTime();
+		for (Event[] query : queries) {
+			if (fewestTransfers) {
+				planner.fewestTransfers(query[0].getVenue(),
+						query[0].getSession(), query[1].getVenue());
+			} else {
+				planner.earliestArrival(query[0].getVenue(),
+						query[0].getSession(), query[1].getVenue());
+			}
+		}
+		return (System.nanoTime() - start) / 1e3 / queries.length;
+	}
+
+	/**
+	 * @require planner != null && queries != null
+	 * @ensure Answers canReach for each pair of events in queries, and returns
+	 *         the average time per query in microseconds.
+	 */
+	private static double timeQueries(DayPlanner planner, Event[][] queries) {
+		long start = System.nanoTime();
+		for (Event[] query : queries) {
+			planner.canReach(query[0], query[1]);
+		}
+		return (System.nanoTime() - start) / 1e3 / queries.length;
+	}
+
+	/**
+	 * @require venues > 0 && sessions > 0
+	 * @ensure Returns QUERIES random (source, destination) pairs of events
+	 *         with the source session no later than the destination session.
+	 */
+	private static Event[][] randomQueries(int venues, int sessions) {
+		Random random = new Random(1); // source of the random queries
+		Event[][] queries = new Event[QUERIES][];
+		for (int i = 0; i < QUERIES; i++) {
+			int first = 1 + random.nextInt(sessions); // source session
+			queries[i] = new Event[] {
+					new Event(new Venue("v" + random.nextInt(venues)), first,
+							"source"),
+					new Event(new Venue("v" + random.nextInt(venues)), first
+							+ random.nextInt(sessions - first + 1),
+							"destination") };
+		}
+		return queries;
+	}
+
+	/**
+	 * @require venues > 0 && sessions > 0 && 0 <= density <= 1
+	 * @ensure Returns a timetable over the venues "v0", "v1", ... in which
+	 *         each possible service runs with the given probability.
+	 */
+	static ShuttleTimetable randomTimetable(int venues, int sessions,
+			double density) {
+		Random random = new Random(venues); // source of the random services
+		ShuttleTimetable timetable = new ShuttleTimetable();
+		for (int a = 0; a < venues; a++) {
+			for (int b = 0; b < venues; b++) {
+				for (int s = 1; s <= sessions; s++) {
+					if (a != b && random.nextDouble() < density) {
+						timetable.addService(new Service(new Venue("v" + a),
+								new Venue("v" + b), s));
+					}
+				}
+			}
+		}
+		return timetable;
+	}
+
+	/**
+	 * @require venues > 0 && sessions > 0
+	 * @ensure Returns a timetable with a service from every venue to every
+	 *         other venue (named "v0", "v1", ...) after every session, and a
+	 *         venue called "sink" that services depart from (to "v0") but
+	 *         never arrive at.
+	 */
+	static ShuttleTimetable denseTimetable(int venues, int sessions) {
+		ShuttleTimetable timetable = new ShuttleTimetable();
+		for (int s = 1; s <= sessions; s++) {
+			timetable.addService(new Service(new Venue("sink"),
+					new Venue("v0"), s));
+		}
+		for (int a = 0; a < venues; a++) {
+			for (int b = 0; b < venues; b++) {
+				if (a != b) {
+					for (int s = 1; s <= sessions; s++) {
+						timetable.addService(new Service(new Venue("v" + a),
+								new Venue("v" + b), s));
+					}
+				}
+			}
+		}
+		return timetable;
+	}
+
+	/**
+	 * The original reachability search used by DayPlanner, which explores
+	 * every path through the timetable.
+	 */
+	private static boolean naiveCanReach(ShuttleTimetable timetable,
+			Venue sourceVenue, int sourceSession, Venue destinationVenue,
+			int destinationSession) {
+		if (destinationSession < sourceSession) {
+			return false;
+		}
+		if (destinationSession == sourceSession) {
+			return sourceVenue.equals(destinationVenue);
+		}
+		if (sourceVenue.equals(destinationVenue)) {
+			return true;
+		}
+		for (int t = sourceSession; t < destinationSession; t++) {
+			for (Venue v : timetable.getDestinations(sourceVenue, t)) {
+				if (naiveCanReach(timetable, v, t + 1, destinationVenue,
+						destinationSession)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
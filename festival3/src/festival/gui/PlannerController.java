@@ -94,7 +94,18 @@ public class PlannerController {
 			if (service.showOpenDialog(view) == JFileChooser.APPROVE_OPTION) {
 				String filename = service.getSelectedFile().getName();
 				try {
-					model.loadServices(filename);
+					if (!model.loadServices(filename)) {
+						// The events added could not all be reached using
+						// the new timetable, so the model removed them
+						view.getSelectedEventsDefaultList().removeAllElements();
+						view.getDayPlanDefaultList().removeAllElements();
+						// Show the Messagebox
+						JOptionPane.showMessageDialog(null,
+								"The events added are not compatible with the "
+										+ "new timetable, so they have been "
+										+ "removed from the plan.",
+								"Plan Cleared", JOptionPane.WARNING_MESSAGE);
+					}
 				} catch (IOException e1) { // File not found
 					// Show the Messagebox
 					JOptionPane
@@ -147,12 +158,10 @@ public class PlannerController {
 										JOptionPane.ERROR_MESSAGE);
 					}
 				} else {
-					model.addEvents(currentSelectedEvent);
-					// Check if events are all compatible
-					if (!model.getPlanner().compatible(model.getDayPlan())) {
+					// Add the event if it is compatible with its neighbours
+					if (!model.addEvents(currentSelectedEvent)) {
 						// A helper method to show the Messageboxes
 						showCannotReachAlert(currentSelectedEvent);
-						model.removeEvent(currentSelectedEvent);
 					} else {
 						// Add the event to the DefaultListModel to show in
 						// the JList
@@ -185,27 +194,24 @@ public class PlannerController {
 		 * reached
 		 */
 		private void showCannotReachAlert(Event event) {
-			for (Event e : model.getDayPlan()) {
-				if (e.getSession() < event.getSession()) {
-					if (!model.getPlanner().canReach(e, event)) {
-						JOptionPane
-								.showMessageDialog(
-										null,
-										"it is not possible to reach the new event "
-												+ "from the 'previous event' in the plan.",
-										"This Event Cannot Be Reached",
-										JOptionPane.ERROR_MESSAGE);
-					}
-				}
-				if (e.getSession() > event.getSession()) {
-					if (!model.getPlanner().canReach(event, e)) {
-						JOptionPane.showMessageDialog(null,
+			// Only the events either side of the new event need to be checked
+			Event previous = model.getPlan().previous(event.getSession());
+			Event next = model.getPlan().next(event.getSession());
+			if (previous != null && !model.canReach(previous, event)) {
+				JOptionPane
+						.showMessageDialog(
+								null,
 								"it is not possible to reach the new event "
-										+ "to the 'next event' in the plan.",
+										+ "from the 'previous event' in the plan.",
 								"This Event Cannot Be Reached",
 								JOptionPane.ERROR_MESSAGE);
-					}
-				}
+			}
+			if (next != null && !model.canReach(event, next)) {
+				JOptionPane.showMessageDialog(null,
+						"it is not possible to reach the new event "
+								+ "to the 'next event' in the plan.",
+						"This Event Cannot Be Reached",
+						JOptionPane.ERROR_MESSAGE);
 			}
 		}
 	}
@@ -3,11 +3,13 @@ package festival.gui;
 import java.io.IOException;
 import java.util.*;
 
+import festival.DayPlan;
 import festival.DayPlanner;
 import festival.Event;
 import festival.FormatException;
 import festival.LineUp;
 import festival.LineUpReader;
+import festival.ReachabilityCache;
 import festival.ScheduleReader;
 import festival.ShuttleTimetable;
 
@@ -16,15 +18,20 @@ import festival.ShuttleTimetable;
  */
 public class PlannerModel {
 
+	// The number of reachability answers to cache
+	private static final int REACHABILITY_CACHE_SIZE = 4096;
+
 	// The LineUp to get the values from LineUpReader.read()
 	private LineUp lineUp;
 	// The timetable to get the values from ScheduleUpReader.read()
 	private ShuttleTimetable timetable;
-	// The DayPlanner to check compatibility
-	private DayPlanner planner;
+	// The cache of reachability answers for the timetable, which the day
+	// plan is checked with (and which compiles the only DayPlanner for it)
+	private ReachabilityCache reachability;
 
-	// The list to save the events that has been added
-	private List<Event> dayPlan;
+	// The plan of the events that has been added (or null if no timetable
+	// has been loaded)
+	private DayPlan dayPlan;
 	// The list to show the events loaded from the file
 	private List<Event> allEvents;
 	// The session numbers of the events that has been added
@@ -36,7 +43,6 @@ public class PlannerModel {
 	public PlannerModel() {
 		lineUp = new LineUp();
 		timetable = new ShuttleTimetable();
-		dayPlan = new ArrayList<>();
 		allEvents = new ArrayList<>();
 		selectedSessions = new ArrayList<>();
 	}
@@ -52,59 +58,106 @@ public class PlannerModel {
 	}
 
 	/**
-	 * Read the timetable from the file
+	 * Read the timetable from the file. The events already added are kept if
+	 * they are compatible with the new timetable; otherwise they are all
+	 * removed from the plan (and from the selected sessions).
 	 * 
 	 * @param fileName
 	 *            The filename of the ".txt" file
+	 * @return true if the events already added were kept, and false if they
+	 *         were removed because they are not compatible with the timetable
 	 */
-	public void loadServices(String fileName) throws IOException,
+	public boolean loadServices(String fileName) throws IOException,
 			FormatException {
 		timetable = ScheduleReader.read(fileName);
-		planner = new DayPlanner(timetable);
+		if (reachability != null) {
+			reachability.close();
+		}
+		reachability = new ReachabilityCache(timetable,
+				REACHABILITY_CACHE_SIZE);
+		if (dayPlan == null) {
+			dayPlan = new DayPlan(reachability);
+			return true;
+		}
+		// keep the events already added, if they are compatible with the new
+		// timetable
+		if (dayPlan.setReachability(reachability)) {
+			return true;
+		}
+		dayPlan = new DayPlan(reachability);
+		selectedSessions.clear();
+		return false;
 	}
 
 	/**
-	 * @return the DayPlanner to check compatibility
+	 * @return the DayPlanner that answers the reachability questions that are
+	 *         not cached (or null if no timetable has been loaded)
 	 */
 	public DayPlanner getPlanner() {
-		return planner;
+		if (reachability == null) {
+			return null;
+		}
+		return reachability.getPlanner();
 	}
 
 	/**
-	 * A helper class to make sure the events are ordered by session number
+	 * Check (using the cache of reachability answers that the day plan is
+	 * checked with) whether the destination event can be reached from the
+	 * source event
+	 * 
+	 * @param source
+	 *            The event to start from
+	 * @param destination
+	 *            The event to reach
+	 * @return true if the destination can be reached from the source
+	 * @throws NullPointerException
+	 *             if no timetable has been loaded
 	 */
-	private static class EventComparator implements Comparator<Event> {
-		public int compare(Event e1, Event e2) {
-			return e1.getSession() - e2.getSession();
-		}
-	};
+	public boolean canReach(Event source, Event destination) {
+		return reachability.canReach(source, destination);
+	}
 
 	/**
-	 * Add the event to the dayPlan list
+	 * Add the event to the day plan, if it is compatible with the events
+	 * already in the plan (only the events just before and after it in the
+	 * plan are checked)
 	 * 
 	 * @param event
 	 *            The event to add
+	 * @return true if the event was added
+	 * @throws NullPointerException
+	 *             if no timetable has been loaded
 	 */
-	public void addEvents(Event event) {
-		dayPlan.add(event);
-		EventComparator comparator = new EventComparator();
-		Collections.sort(dayPlan, comparator);
+	public boolean addEvents(Event event) {
+		return dayPlan.add(event);
 	}
 
 	/**
-	 * Remove the event from the dayPlan list
+	 * Remove the event from the day plan
 	 * 
 	 * @param event
 	 *            The event to remove
 	 */
 	public void removeEvent(Event event) {
-		dayPlan.remove(event);
+		if (dayPlan != null) {
+			dayPlan.remove(event);
+		}
 	}
 
 	/**
-	 * @return the list of the day plan
+	 * @return the list of the day plan, ordered by session number
 	 */
 	public List<Event> getDayPlan() {
+		if (dayPlan == null) {
+			return new ArrayList<>();
+		}
+		return dayPlan.getEvents();
+	}
+
+	/**
+	 * @return the day plan (or null if no timetable has been loaded)
+	 */
+	public DayPlan getPlan() {
 		return dayPlan;
 	}
 